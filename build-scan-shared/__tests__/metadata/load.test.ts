@@ -1,4 +1,7 @@
 import {jest} from '@jest/globals'
+import fs from 'fs'
+import os from 'os'
+import path from 'path'
 
 const mockGlob = jest.fn<() => Promise<string[]>>()
 const mockCreate = jest.fn<(patterns: string, options?: object) => Promise<{glob: () => Promise<string[]>}>>()
@@ -24,6 +27,16 @@ jest.unstable_mockModule('properties-reader', () => ({
     default: jest.fn(() => mockReader)
 }))
 
+function writeJournal(lines: (string | object)[]): string {
+    const journal = path.join(fs.mkdtempSync(path.join(os.tmpdir(), 'build-scan-metadata-')), 'journal-job.jsonl')
+    fs.writeFileSync(journal, lines.map(line => (typeof line === 'string' ? line : JSON.stringify(line))).join('\n'))
+    return journal
+}
+
+function record(buildId: string, entries: object): object {
+    return {version: 1, buildId, entries}
+}
+
 const {loadJobMetadata} = await import('../../src/metadata/load')
 const {BuildToolType} = await import('../../src/buildTool/common')
 
@@ -58,4 +71,55 @@ describe('load', () => {
         expect(buildScanData?.builds).toBeUndefined()
         expect(buildScanData?.prNumber).toBeUndefined()
     })
+
+    it('Load build scan metadata merges journal records of each build', async () => {
+        // given
+        const journal = writeJournal([
+            record('abcdef', {
+                PR_NUMBER: '42',
+                WORKFLOW_NAME: 'workflow',
+                JOB_NAME: 'job',
+                REQUESTED_TASKS: 'install',
+                BUILD_FAILURE: 'false',
+                TIMESTAMP: '2'
+            }),
+            record('ghijkl', {
+                PR_NUMBER: '42',
+                WORKFLOW_NAME: 'workflow',
+                JOB_NAME: 'job',
+                REQUESTED_TASKS: 'verify',
+                BUILD_FAILURE: 'false',
+                TIMESTAMP: '1'
+            }),
+            record('abcdef', {BUILD_FAILURE: 'true', BUILD_SCAN_LINK: 'https://scans.gradle.com/s/abcdef'})
+        ])
+        setupGlob([journal])
+
+        // when
+        const buildScanData = await loadJobMetadata(BuildToolType.MAVEN, path.dirname(journal))
+
+        // then
+        expect(buildScanData.prNumber).toBe(42)
+        expect(buildScanData.builds.map(build => build.buildId)).toEqual(['ghijkl', 'abcdef'])
+        expect(buildScanData.builds[1].buildFailure).toBe(true)
+        expect(buildScanData.builds[1].requestedTasks).toBe('install')
+        expect(buildScanData.builds[1].buildScanLink).toBe('https://scans.gradle.com/s/abcdef')
+    })
+
+    it('Load build scan metadata skips unexpected journal records', async () => {
+        // given
+        const journal = writeJournal([
+            'not a record',
+            record('abcdef', {WORKFLOW_NAME: 'workflow', JOB_NAME: 'job', REQUESTED_TASKS: 'install', TIMESTAMP: '1'}),
+            ''
+        ])
+        setupGlob([journal])
+
+        // when
+        const buildScanData = await loadJobMetadata(BuildToolType.MAVEN, path.dirname(journal))
+
+        // then
+        expect(buildScanData.builds).toHaveLength(1)
+        expect(buildScanData.builds[0].buildId).toBe('abcdef')
+    })
 })
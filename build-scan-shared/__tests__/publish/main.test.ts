@@ -1,4 +1,5 @@
 import {jest} from '@jest/globals'
+import path from 'path'
 
 process.env['RUNNER_TEMP'] = '/tmp'
 const mockedArtifactIds = [42]
@@ -20,11 +21,62 @@ jest.unstable_mockModule('../../src/summary/dump', () => ({
     dump: mockDump
 }))
 
-const {publish} = await import('../../src/publish/main')
+const mockLoadJobMetadata = jest.fn()
+
+jest.unstable_mockModule('../../src/metadata/load', () => ({
+    loadJobMetadata: mockLoadJobMetadata
+}))
+
+const mockExistsSync = jest.fn()
+const mockExtractZip = jest.fn()
+const mockReadFileSync = jest.fn()
+const mockMkdirSync = jest.fn()
+const mockCopyFileSync = jest.fn()
+const mockGetFileSize = jest.fn<(fileName: string) => number | undefined>()
+
+jest.unstable_mockModule('../../src/utils/io', () => ({
+    existsSync: mockExistsSync,
+    extractZip: mockExtractZip,
+    readFileSync: mockReadFileSync,
+    mkdirSync: mockMkdirSync,
+    copyFileSync: mockCopyFileSync,
+    getFileSize: mockGetFileSize
+}))
+
+function job(metadata: object) {
+    return {
+        builds: [
+            {
+                projectId: 'projectId',
+                workflowName: 'workflow',
+                jobName: 'job',
+                buildToolVersion: '42',
+                requestedTasks: 'install',
+                buildId: 'abcde',
+                buildFailure: false,
+                buildTimestamp: '0',
+                ...metadata
+            }
+        ]
+    }
+}
+
+const {publish, verifyIntegrity} = await import('../../src/publish/main')
 import * as commonBuildTool from '../../src/buildTool/common'
 import * as maven from '../../src/buildTool/maven'
 const buildTool = maven.mavenBuildTool
 
+const corruptDump = {'scan.scan': 3, 'nested/resource file.bin': 5}
+
+function setupScanDump(sizes: {[relativePath: string]: number}): void {
+    const dumpDir = path.resolve(buildTool.getBuildScanDataDir(), '2.5.0/previous/abcde')
+    mockExistsSync.mockReturnValue(true)
+    mockReadFileSync.mockReturnValue(
+        '#algorithm=CRC32C\n#dump=2.5.0/previous/abcde\n0a1b2c3d 10 scan.scan\n- 5 nested/resource file.bin\n'
+    )
+    mockGetFileSize.mockImplementation(fileName => sizes[path.relative(dumpDir, fileName)])
+}
+
 const buildScanPublishMock = jest
     .spyOn(commonBuildTool.PostPublishingBuildTool.prototype, 'buildScanPublish')
     .mockResolvedValue()
@@ -38,6 +90,7 @@ describe('main', () => {
         // Given
         mockIsPublicationAllowed.mockReturnValue(true)
         mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve({}))
 
         // when
         await publish(buildTool)
@@ -48,6 +101,111 @@ describe('main', () => {
         expect(mockDump).toHaveBeenCalled()
     })
 
+    it('Publish extracts captured build scan archive', async () => {
+        // Given
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve(job({buildScanArchive: 'archives/abcde.zip'})))
+        mockExistsSync.mockReturnValue(true)
+        mockExtractZip.mockReturnValue(Promise.resolve(buildTool.getBuildScanDataDir()))
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockExtractZip).toHaveBeenCalledWith(
+            path.resolve(buildTool.getBuildScanDataDir(), 'archives/abcde.zip'),
+            buildTool.getBuildScanDataDir()
+        )
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
+    it('Publish without captured build scan archive still publishes', async () => {
+        // Given
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve(job({buildScanArchive: 'archives/abcde.zip'})))
+        mockExistsSync.mockReturnValue(false)
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockExtractZip).not.toHaveBeenCalled()
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
+    it('Publish with skipped capture does not extract archive', async () => {
+        // Given
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(
+            Promise.resolve(job({captureSkipped: 'timeout', buildScanArchive: 'archives/abcde.zip'}))
+        )
+        mockExistsSync.mockReturnValue(true)
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockExtractZip).not.toHaveBeenCalled()
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
+    it('Publish restores captured build scan from content store', async () => {
+        // Given
+        const hash = 'ab'.repeat(32)
+        const storeDir = path.resolve(buildTool.getBuildScanDataDir(), 'store')
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve(job({buildScanManifest: 'abcde.manifest'})))
+        mockExistsSync.mockReturnValue(true)
+        mockReadFileSync.mockReturnValue(`${hash} 10 2.5.0/previous/abc de/scan.scan\n`)
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockReadFileSync).toHaveBeenCalledWith(path.resolve(storeDir, 'manifests', 'abcde.manifest'))
+        expect(mockMkdirSync).toHaveBeenCalledWith(path.resolve(buildTool.getBuildScanDataDir(), '2.5.0/previous/abc de'))
+        expect(mockCopyFileSync).toHaveBeenCalledWith(
+            path.resolve(storeDir, 'objects', 'ab', hash),
+            path.resolve(buildTool.getBuildScanDataDir(), '2.5.0/previous/abc de/scan.scan')
+        )
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
+    it('Publish without content store manifest still publishes', async () => {
+        // Given
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve(job({buildScanManifest: 'abcde.manifest'})))
+        mockExistsSync.mockReturnValue(false)
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockReadFileSync).not.toHaveBeenCalled()
+        expect(mockCopyFileSync).not.toHaveBeenCalled()
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
+    it('Publish with corrupt build scan still publishes it', async () => {
+        // Given
+        mockIsPublicationAllowed.mockReturnValue(true)
+        mockDownloadBuildScanData.mockReturnValue(Promise.resolve(mockedArtifactIds))
+        mockLoadJobMetadata.mockReturnValue(Promise.resolve(job({buildScanIntegrity: 'abcde.integrity'})))
+        setupScanDump(corruptDump)
+
+        // when
+        await publish(buildTool)
+
+        // then
+        expect(mockGetFileSize).toHaveBeenCalled()
+        expect(buildScanPublishMock).toHaveBeenCalled()
+    })
+
     it('Publish on non workflow_run event does nothing', async () => {
         // Given
         mockIsPublicationAllowed.mockReturnValue(false)
@@ -57,8 +215,55 @@ describe('main', () => {
         await publish(buildTool)
 
         // then
+        expect(mockLoadJobMetadata).not.toHaveBeenCalled()
         expect(buildScanPublishMock).not.toHaveBeenCalled()
         expect(mockDeleteWorkflowArtifacts).not.toHaveBeenCalled()
         expect(mockDump).not.toHaveBeenCalled()
     })
 })
+
+describe('verifyIntegrity', () => {
+    afterEach(() => {
+        jest.clearAllMocks()
+    })
+
+    it('Verify integrity of complete scan dump succeeds', () => {
+        // Given
+        setupScanDump({'scan.scan': 10, 'nested/resource file.bin': 5})
+
+        // when
+        const verified = verifyIntegrity(buildTool, 'abcde', 'abcde.integrity')
+
+        // then
+        expect(verified).toBe(true)
+        expect(mockReadFileSync).toHaveBeenCalledWith(
+            path.resolve(buildTool.getBuildScanMetadataDir(), 'abcde.integrity')
+        )
+    })
+
+    it('Verify integrity of truncated scan dump fails and leaves it in place', () => {
+        // Given
+        setupScanDump(corruptDump)
+
+        // when
+        const verified = verifyIntegrity(buildTool, 'abcde', 'abcde.integrity')
+
+        // then
+        expect(verified).toBe(false)
+        expect(mockMkdirSync).not.toHaveBeenCalled()
+        expect(mockCopyFileSync).not.toHaveBeenCalled()
+        expect(mockExtractZip).not.toHaveBeenCalled()
+    })
+
+    it('Verify integrity without manifest succeeds', () => {
+        // Given
+        mockExistsSync.mockReturnValue(false)
+
+        // when
+        const verified = verifyIntegrity(buildTool, 'abcde', 'abcde.integrity')
+
+        // then
+        expect(verified).toBe(true)
+        expect(mockReadFileSync).not.toHaveBeenCalled()
+    })
+})
@@ -20,7 +20,7 @@ jest.unstable_mockModule('../../src/setup/input', () => ({
     isAddProjectIdInJobSummary: jest.fn().mockReturnValue(false)
 }))
 
-function job(buildTool: BuildToolType) {
+function job(buildTool: BuildToolType, metadata: object = {}) {
     return {
         prNumber: 42,
         builds: [
@@ -33,7 +33,8 @@ function job(buildTool: BuildToolType) {
                 buildId: 'abcde',
                 buildFailure: false,
                 buildTimestamp: '0',
-                isRepublished: false
+                isRepublished: false,
+                ...metadata
             }
         ],
         buildToolType: buildTool
@@ -54,6 +55,15 @@ jest.unstable_mockModule('../../src/utils/github', () => ({
     addSummary: mockGitHubAddSummary
 }))
 
+async function dumpSummary(metadata: object): Promise<string> {
+    mockLoadJobMetadata.mockReturnValue(job(BuildToolType.MAVEN, metadata))
+    mockIsAddPrComment.mockReturnValue(false)
+    mockIsAddJobSummary.mockReturnValue(true)
+    mockGitHubAddSummary.mockReturnValue(Promise.resolve(undefined))
+    await dump(BuildToolType.MAVEN, '', '')
+    return mockGitHubAddSummary.mock.calls[0][1] as string
+}
+
 const {dump} = await import('../../src/summary/dump')
 
 describe('dump', () => {
@@ -160,4 +170,111 @@ describe('dump', () => {
             expect(mockGitHubAddSummary).not.toHaveBeenCalled()
         }
     )
+
+    it('Dump renders slowest execution of each build', async () => {
+        // Given
+        const metadata = {
+            slowestMojos:
+                'module-a:maven-surefire-plugin:test (default-test)=4200, module-b:maven-compiler-plugin:compile (default-compile)=1300'
+        }
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<th>Slowest Execution</th>')
+        expect(summary).toContain('<td>module-a:maven-surefire-plugin:test (default-test) (4200 ms)</td>')
+    })
+
+    it('Dump renders build cache loads of each build', async () => {
+        // Given
+        const metadata = {
+            buildCache: 'goals=12, localLoads=5, localLoadBytes=2048, localStores=3, localStoreBytes=1024, remoteEnabled=false, scanMillis=4'
+        }
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<th>Build Cache</th>')
+        expect(summary).toContain('<td>5/12 goals loaded, 3 stored</td>')
+    })
+
+    it('Dump renders build cache loads without counted goals', async () => {
+        // Given
+        const metadata = {
+            buildCache: 'localLoads=5, localLoadBytes=2048, localStores=3, localStoreBytes=1024, remoteEnabled=false, scanMillis=4'
+        }
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<td>5 goals loaded, 3 stored</td>')
+    })
+
+    it('Dump renders build cache entries used with remote cache', async () => {
+        // Given
+        const metadata = {
+            buildCache: 'goals=12, localEntries=8, localEntryBytes=3072, remoteEnabled=true, scanMillis=4'
+        }
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<td>8/12 goals loaded or stored</td>')
+    })
+
+    it('Dump renders slowest repository of each build', async () => {
+        // Given
+        const metadata = {
+            transferRepositories:
+                'mirror: downloads=1, bytes=3145728, millis=1500, bytesPerSecond=2097152, failures=1; central: downloads=2, bytes=500, millis=1200, bytesPerSecond=416, failures=0'
+        }
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<th>Slowest Repository</th>')
+        expect(summary).toContain('<td>mirror (3.0 MB in 1.5 s)</td>')
+    })
+
+    it('Dump renders test results of each build', async () => {
+        // Given
+        const metadata = {testResults: 'tests=9, failures=1, errors=1, skipped=1, reports=3'}
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<th>Tests</th>')
+        expect(summary).toContain('<td>9 tests, 2 failed, 1 skipped</td>')
+    })
+
+    it('Dump renders incomplete test results', async () => {
+        // Given
+        const metadata = {testResults: 'tests=1, failures=0, errors=0, skipped=0, reports=1, incomplete=true'}
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).toContain('<td>1 tests, 0 failed, 0 skipped (incomplete)</td>')
+    })
+
+    it('Dump without measurements renders no measurement column', async () => {
+        // Given
+        const metadata = {}
+
+        // when
+        const summary = await dumpSummary(metadata)
+
+        // then
+        expect(summary).not.toContain('<th>Slowest Execution</th>')
+        expect(summary).not.toContain('<th>Build Cache</th>')
+        expect(summary).not.toContain('<th>Slowest Repository</th>')
+        expect(summary).not.toContain('<th>Tests</th>')
+    })
 })
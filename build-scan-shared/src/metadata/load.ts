@@ -6,6 +6,7 @@ import * as glob from '@actions/glob'
 import propertiesReader from 'properties-reader'
 
 import {BuildToolType} from '../buildTool/common'
+import * as io from '../utils/io'
 
 export interface Job {
     prNumber?: number
@@ -23,22 +24,61 @@ export interface BuildMetadata {
     buildFailure: boolean
     buildTimestamp: string
     buildScanLink?: string
+    buildScanArchive?: string
+    buildScanManifest?: string
+    buildScanIntegrity?: string
+    captureSkipped?: string
+    slowestModules?: string
+    slowestMojos?: string
+    buildCache?: string
+    transferRepositories?: string
+    slowestDownloads?: string
+    testResults?: string
+    slowestTestClasses?: string
+    jvmProfile?: string
 }
 
+interface JournalRecord {
+    version: number
+    buildId: string
+    entries: {[key: string]: string}
+}
+
+type MetadataGetter = (key: string) => string | number | boolean | null | undefined
+
+const JOURNAL_PREFIX = 'journal-'
+const JOURNAL_EXTENSION = '.jsonl'
+
 export async function loadJobMetadata(buildToolType: BuildToolType, buildScanMetadataDir: string): Promise<Job> {
     let prNumber
     const builds: BuildMetadata[] = []
 
-    // Collect build scan metadata
-    const globber = await glob.create(`${buildScanMetadataDir}/*.txt`, {matchDirectories: false})
+    // Collect build scan metadata from job journals and legacy <buildId>.txt files
+    const globber = await glob.create(`${buildScanMetadataDir}/*.txt\n${buildScanMetadataDir}/${JOURNAL_PREFIX}*${JOURNAL_EXTENSION}`, {
+        matchDirectories: false
+    })
     const metadataFiles = await globber.glob()
     if (!metadataFiles || metadataFiles.length === 0) {
         core.info(`No build Scan metadata to process`)
         return <Job>{}
     }
 
+    const buildEntries = new Map<string, MetadataGetter>()
     for (const metadataFile of metadataFiles) {
-        const currentMetadata = toBuildMetadata(metadataFile)
+        if (metadataFile.endsWith(JOURNAL_EXTENSION)) {
+            for (const [buildId, getter] of readJournal(metadataFile)) {
+                buildEntries.set(buildId, mergeGetters(buildEntries.get(buildId), getter))
+            }
+        } else {
+            const buildId = path.parse(metadataFile).name
+            const metadataReader = propertiesReader({sourceFile: metadataFile})
+            const getter: MetadataGetter = key => metadataReader.get(key)
+            buildEntries.set(buildId, mergeGetters(buildEntries.get(buildId), getter))
+        }
+    }
+
+    for (const [buildId, getter] of buildEntries) {
+        const currentMetadata = toBuildMetadata(buildId, getter)
         builds.push(currentMetadata.buildMetadata)
         prNumber = currentMetadata.prNumber
     }
@@ -54,18 +94,71 @@ export async function loadJobMetadata(buildToolType: BuildToolType, buildScanMet
     }
 }
 
-function toBuildMetadata(metadataFile: string): {buildMetadata: BuildMetadata; prNumber: number} {
-    const buildId = path.parse(metadataFile).name
-    const metadataReader = propertiesReader({sourceFile: metadataFile})
-    const prNumber = Number(metadataReader.get('PR_NUMBER'))
-    const projectId = metadataReader.get('PROJECT_ID') as string
-    const workflowName = metadataReader.get('WORKFLOW_NAME') as string
-    const jobName = metadataReader.get('JOB_NAME') as string
-    const buildToolVersion = metadataReader.get('BUILD_TOOL_VERSION') as string
-    const requestedTasks = metadataReader.get('REQUESTED_TASKS') as string
-    const buildFailure = metadataReader.get('BUILD_FAILURE')?.valueOf() as boolean
-    const buildTimestamp = metadataReader.get('TIMESTAMP') as string
-    const buildScanLink = metadataReader.get('BUILD_SCAN_LINK') as string
+function readJournal(journalFile: string): Map<string, MetadataGetter> {
+    // Records of a build are merged in order, later entries override earlier ones
+    const entriesByBuild = new Map<string, {[key: string]: string}>()
+    for (const line of io.readFileSync(journalFile).split('\n')) {
+        if (!line.trim()) {
+            continue
+        }
+        try {
+            const record = JSON.parse(line) as JournalRecord
+            entriesByBuild.set(record.buildId, {...entriesByBuild.get(record.buildId), ...record.entries})
+        } catch (error) {
+            core.info(`Skipping unexpected Build Scan metadata record in ${journalFile}: ${error}`)
+        }
+    }
+
+    const getters = new Map<string, MetadataGetter>()
+    for (const [buildId, entries] of entriesByBuild) {
+        getters.set(buildId, key => toPropertyValue(entries[key]))
+    }
+    return getters
+}
+
+function toPropertyValue(value: string | undefined): string | number | boolean | undefined {
+    // Mimic properties-reader value conversion
+    if (value === 'true' || value === 'false') {
+        return value === 'true'
+    }
+    if (value !== undefined && value.trim() !== '' && !isNaN(Number(value))) {
+        return Number(value)
+    }
+    return value
+}
+
+function mergeGetters(previous: MetadataGetter | undefined, next: MetadataGetter): MetadataGetter {
+    if (!previous) {
+        return next
+    }
+    return key => {
+        const value = next(key)
+        return value !== undefined && value !== null ? value : previous(key)
+    }
+}
+
+function toBuildMetadata(buildId: string, get: MetadataGetter): {buildMetadata: BuildMetadata; prNumber: number} {
+    const prNumber = Number(get('PR_NUMBER'))
+    const projectId = get('PROJECT_ID') as string
+    const workflowName = get('WORKFLOW_NAME') as string
+    const jobName = get('JOB_NAME') as string
+    const buildToolVersion = get('BUILD_TOOL_VERSION') as string
+    const requestedTasks = get('REQUESTED_TASKS') as string
+    const buildFailure = get('BUILD_FAILURE')?.valueOf() as boolean
+    const buildTimestamp = get('TIMESTAMP') as string
+    const buildScanLink = get('BUILD_SCAN_LINK') as string
+    const buildScanArchive = get('BUILD_SCAN_ARCHIVE') as string
+    const buildScanManifest = get('BUILD_SCAN_MANIFEST') as string
+    const buildScanIntegrity = get('BUILD_SCAN_INTEGRITY') as string
+    const captureSkipped = get('BUILD_SCAN_CAPTURE_SKIPPED') as string
+    const slowestModules = get('SLOWEST_MODULES') as string
+    const slowestMojos = get('SLOWEST_MOJOS') as string
+    const buildCache = get('BUILD_CACHE') as string
+    const transferRepositories = get('TRANSFER_REPOSITORIES') as string
+    const slowestDownloads = get('SLOWEST_DOWNLOADS') as string
+    const testResults = get('TEST_RESULTS') as string
+    const slowestTestClasses = get('SLOWEST_TEST_CLASSES') as string
+    const jvmProfile = get('JVM_PROFILE') as string
     if (!workflowName || !jobName || !requestedTasks) {
         core.info(
             `Unexpected Build Scan metadata content [${buildId},${prNumber},${workflowName},${jobName},${requestedTasks}]`
@@ -82,7 +175,19 @@ function toBuildMetadata(metadataFile: string): {buildMetadata: BuildMetadata; p
             buildId,
             buildFailure,
             buildTimestamp,
-            buildScanLink
+            buildScanLink,
+            buildScanArchive,
+            buildScanManifest,
+            buildScanIntegrity,
+            captureSkipped,
+            slowestModules,
+            slowestMojos,
+            buildCache,
+            transferRepositories,
+            slowestDownloads,
+            testResults,
+            slowestTestClasses,
+            jvmProfile
         },
         prNumber
     }
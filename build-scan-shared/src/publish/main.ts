@@ -1,10 +1,15 @@
 import * as core from '@actions/core'
+import path from 'path'
 
 import * as commonBuildTool from '../buildTool/common'
 import * as githubUtils from '../utils/github'
 import * as input from './input'
+import * as io from '../utils/io'
+import * as metadata from '../metadata/load'
 import * as summary from '../summary/dump'
 
+const STORE_DIR = 'store'
+
 export async function publish(buildTool: commonBuildTool.PostPublishingBuildTool): Promise<void> {
     githubUtils.logOriginWorkflowLink()
 
@@ -14,6 +19,10 @@ export async function publish(buildTool: commonBuildTool.PostPublishingBuildTool
             buildTool.getDevelocityDir()
         )
 
+        // Restore Build Scan data captured as archives or in the content store and report skipped captures
+        // Scan dumps not matching their integrity manifest are reported, they are left in place and never deleted
+        await restoreCapturedBuildScans(buildTool)
+
         // Publish build scans
         await buildTool.buildScanPublish()
 
@@ -27,3 +36,86 @@ export async function publish(buildTool: commonBuildTool.PostPublishingBuildTool
         core.info('Skipping the publication: Unsupported event trigger')
     }
 }
+
+async function restoreCapturedBuildScans(buildTool: commonBuildTool.PostPublishingBuildTool): Promise<void> {
+    const job = await metadata.loadJobMetadata(buildTool.getType(), buildTool.getBuildScanMetadataDir())
+    for (const build of job.builds ?? []) {
+        if (build.captureSkipped) {
+            core.warning(`Build Scan for build id ${build.buildId} was not captured: ${build.captureSkipped}`)
+        } else if (build.buildScanArchive) {
+            const archive = path.resolve(buildTool.getBuildScanDataDir(), build.buildScanArchive)
+            if (io.existsSync(archive)) {
+                core.debug(`Extracting ${archive}`)
+                await io.extractZip(archive, buildTool.getBuildScanDataDir())
+            } else {
+                core.warning(`Build Scan archive ${archive} not found for build id ${build.buildId}`)
+            }
+        } else if (build.buildScanManifest) {
+            restoreFromStore(buildTool.getBuildScanDataDir(), build.buildId, build.buildScanManifest)
+        }
+        if (build.buildScanIntegrity) {
+            verifyIntegrity(buildTool, build.buildId, build.buildScanIntegrity)
+        }
+    }
+}
+
+// The manifest starts with '#algorithm=' and '#dump=<scan dump path relative to build-scan-data>' headers,
+// followed by '<checksum or -> <size> <path relative to the scan dump>' lines
+// Only sizes are compared, a truncated or partially restored scan dump is caught without reading its content
+// The scan dump is only verified, never modified: a mismatch is reported and left to the publication
+// Returns false when the scan dump doesn't match its manifest
+export function verifyIntegrity(
+    buildTool: commonBuildTool.PostPublishingBuildTool,
+    buildId: string,
+    integrityName: string
+): boolean {
+    const manifest = path.resolve(buildTool.getBuildScanMetadataDir(), integrityName)
+    if (!io.existsSync(manifest)) {
+        core.debug(`Integrity manifest ${manifest} not found for build id ${buildId}`)
+        return true
+    }
+    const lines = io.readFileSync(manifest).split('\n')
+    const dumpPath = lines.find(line => line.startsWith('#dump='))?.substring('#dump='.length)
+    if (!dumpPath) {
+        return true
+    }
+    const dumpDir = path.resolve(buildTool.getBuildScanDataDir(), dumpPath)
+    if (!io.existsSync(dumpDir)) {
+        return true
+    }
+    for (const line of lines) {
+        if (!line || line.startsWith('#')) {
+            continue
+        }
+        const [, size, ...relativePath] = line.split(' ')
+        const file = path.resolve(dumpDir, relativePath.join(' '))
+        const actualSize = io.getFileSize(file)
+        if (actualSize !== Number(size)) {
+            core.warning(
+                `Build Scan for build id ${buildId} is corrupt (${file}: expected ${size} bytes, found ${actualSize ?? 'none'})`
+            )
+            return false
+        }
+    }
+    return true
+}
+
+// Each manifest line is '<sha256> <size> <path relative to build-scan-data>', content is read from store/objects
+function restoreFromStore(buildScanDataDir: string, buildId: string, manifestName: string): void {
+    const storeDir = path.resolve(buildScanDataDir, STORE_DIR)
+    const manifest = path.resolve(storeDir, 'manifests', manifestName)
+    if (!io.existsSync(manifest)) {
+        core.warning(`Build Scan manifest ${manifest} not found for build id ${buildId}`)
+        return
+    }
+    core.debug(`Restoring ${manifest}`)
+    for (const line of io.readFileSync(manifest).split('\n')) {
+        if (!line) {
+            continue
+        }
+        const [hash, , ...relativePath] = line.split(' ')
+        const target = path.resolve(buildScanDataDir, relativePath.join(' '))
+        io.mkdirSync(path.dirname(target))
+        io.copyFileSync(path.resolve(storeDir, 'objects', hash.substring(0, 2), hash), target)
+    }
+}
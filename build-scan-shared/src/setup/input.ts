@@ -90,6 +90,54 @@ function getCaptureStrategy(): string {
     return sharedInput.getInput('capture-strategy')
 }
 
+function getCaptureMode(): string {
+    return sharedInput.getInput('capture-mode')
+}
+
+function getCaptureCompressionLevel(): string {
+    return sharedInput.getInput('capture-compression-level')
+}
+
+function getCaptureTimeout(): string {
+    return sharedInput.getInput('capture-timeout')
+}
+
+function getCaptureEager(): string {
+    return sharedInput.getInput('capture-eager')
+}
+
+function getCaptureMaxDumpSize(): string {
+    return sharedInput.getInput('capture-max-dump-size')
+}
+
+function getCaptureMinFreeSpace(): string {
+    return sharedInput.getInput('capture-min-free-space')
+}
+
+function getCaptureMaxJobSize(): string {
+    return sharedInput.getInput('capture-max-job-size')
+}
+
+function getRetentionMaxAge(): string {
+    return sharedInput.getInput('retention-max-age')
+}
+
+function getRetentionMaxCount(): string {
+    return sharedInput.getInput('retention-max-count')
+}
+
+function getRetentionMaxSize(): string {
+    return sharedInput.getInput('retention-max-size')
+}
+
+function getSlowestExecutions(): string {
+    return sharedInput.getInput('slowest-executions')
+}
+
+function getLegacyMetadataFiles(): string {
+    return sharedInput.getInput('legacy-metadata-files')
+}
+
 function getCaptureUnpublishedBuildScans(): string {
     return sharedInput.getInput('capture-unpublished-build-scans')
 }
@@ -116,6 +164,18 @@ export function exportVariables(accessToken: string, buildTool: commonBuildTool.
         core.exportVariable(auth.ENV_KEY_DEVELOCITY_ACCESS_KEY, accessToken)
     }
     core.exportVariable('INPUT_CAPTURE_STRATEGY', getCaptureStrategy())
+    core.exportVariable('INPUT_CAPTURE_MODE', getCaptureMode())
+    core.exportVariable('INPUT_CAPTURE_COMPRESSION_LEVEL', getCaptureCompressionLevel())
+    core.exportVariable('INPUT_CAPTURE_TIMEOUT', getCaptureTimeout())
+    core.exportVariable('INPUT_CAPTURE_EAGER', getCaptureEager())
+    core.exportVariable('INPUT_CAPTURE_MAX_DUMP_SIZE', getCaptureMaxDumpSize())
+    core.exportVariable('INPUT_CAPTURE_MIN_FREE_SPACE', getCaptureMinFreeSpace())
+    core.exportVariable('INPUT_CAPTURE_MAX_JOB_SIZE', getCaptureMaxJobSize())
+    core.exportVariable('INPUT_RETENTION_MAX_AGE', getRetentionMaxAge())
+    core.exportVariable('INPUT_RETENTION_MAX_COUNT', getRetentionMaxCount())
+    core.exportVariable('INPUT_RETENTION_MAX_SIZE', getRetentionMaxSize())
+    core.exportVariable('INPUT_SLOWEST_EXECUTIONS', getSlowestExecutions())
+    core.exportVariable('INPUT_LEGACY_METADATA_FILES', getLegacyMetadataFiles())
     core.exportVariable('INPUT_CAPTURE_UNPUBLISHED_BUILD_SCANS', getCaptureUnpublishedBuildScans())
     core.exportVariable('INPUT_CAPTURE_BUILD_SCAN_LINKS', getCaptureBuildScanLinks())
     core.exportVariable('INPUT_JOB_NAME', getJobName())
@@ -30,7 +30,10 @@ function hasBuildScanDumpToUpload(buildScanFiles: string[], buildScanDataWorkDir
 
 async function getBuildScanDataFiles(buildScanDataFolder: string): Promise<string[]> {
     core.debug(`Collecting build scan files in ${buildScanDataFolder}/**`)
-    const globber = await glob.create(`${buildScanDataFolder}/**`, {matchDirectories: false})
+    // Captures still in progress or aborted are staged under .staging and must not be uploaded
+    const globber = await glob.create(`${buildScanDataFolder}/**\n!${buildScanDataFolder}/**/.staging/**`, {
+        matchDirectories: false
+    })
     return await globber.glob()
 }
 
@@ -40,6 +40,10 @@ function dumpToFile(job: Job, buildScanWorkDir: string): void {
 }
 
 function getHtmlSummary(job: Job): string {
+    const hasSlowestExecutions = job.builds.some(build => build.slowestMojos)
+    const hasBuildCache = job.builds.some(build => build.buildCache)
+    const hasDownloads = job.builds.some(build => build.transferRepositories)
+    const hasTestResults = job.builds.some(build => build.testResults)
     return `
 <table>
     <tr>${
@@ -51,9 +55,29 @@ function getHtmlSummary(job: Job): string {
         <th>Job</th>
         <th>Requested ${getWorkUnitName(job.buildToolType)}</th>
         <th>Build Tool Version</th>
-        <th>Build Outcome</th>
+        <th>Build Outcome</th>${
+            hasTestResults
+                ? `
+        <th>Tests</th>`
+                : ''
+        }${
+            hasSlowestExecutions
+                ? `
+        <th>Slowest Execution</th>`
+                : ''
+        }${
+            hasBuildCache
+                ? `
+        <th>Build Cache</th>`
+                : ''
+        }${
+            hasDownloads
+                ? `
+        <th>Slowest Repository</th>`
+                : ''
+        }
         <th>Build Scan®</th>
-    </tr>${job.builds.map(build => renderBuildResultRow(build)).join('')}
+    </tr>${job.builds.map(build => renderBuildResultRow(build, hasTestResults, hasSlowestExecutions, hasBuildCache, hasDownloads)).join('')}
 </table>
     `
 }
@@ -69,7 +93,13 @@ function getWorkUnitName(buildToolType: BuildToolType): string {
     }
 }
 
-function renderBuildResultRow(build: BuildMetadata): string {
+function renderBuildResultRow(
+    build: BuildMetadata,
+    hasTestResults: boolean,
+    hasSlowestExecutions: boolean,
+    hasBuildCache: boolean,
+    hasDownloads: boolean
+): string {
     return `
     <tr>${
         input.isAddProjectIdInJobSummary()
@@ -80,7 +110,27 @@ function renderBuildResultRow(build: BuildMetadata): string {
         <td>${build.jobName}</td>
         <td>${build.requestedTasks}</td>
         <td align='center'>${build.buildToolVersion}</td>
-        <td align='center'>${renderOutcome(build)}</td>
+        <td align='center'>${renderOutcome(build)}</td>${
+            hasTestResults
+                ? `
+        <td>${renderTestResults(build)}</td>`
+                : ''
+        }${
+            hasSlowestExecutions
+                ? `
+        <td>${renderSlowestExecution(build)}</td>`
+                : ''
+        }${
+            hasBuildCache
+                ? `
+        <td>${renderBuildCache(build)}</td>`
+                : ''
+        }${
+            hasDownloads
+                ? `
+        <td>${renderSlowestRepository(build)}</td>`
+                : ''
+        }
         <td>${renderBuildScan(build)}</td>
     </tr>`
 }
@@ -89,6 +139,66 @@ function renderOutcome(build: BuildMetadata): string {
     return build.buildFailure ? ':x:' : ':white_check_mark:'
 }
 
+// TEST_RESULTS is 'tests=<n>, failures=<n>, errors=<n>, skipped=<n>, reports=<n>[, incomplete=true]'
+function renderTestResults(build: BuildMetadata): string {
+    if (!build.testResults) {
+        return ''
+    }
+    const results = new Map(build.testResults.split(', ').map(entry => entry.split('=') as [string, string]))
+    const failed = Number(results.get('failures')) + Number(results.get('errors'))
+    const incomplete = results.get('incomplete') === 'true' ? ' (incomplete)' : ''
+    return `${results.get('tests')} tests, ${failed} failed, ${results.get('skipped')} skipped${incomplete}`
+}
+
+// SLOWEST_MOJOS is '<module>:<plugin>:<goal> (<execution>)=<millis>, ...', slowest first
+function renderSlowestExecution(build: BuildMetadata): string {
+    if (!build.slowestMojos) {
+        return ''
+    }
+    const slowest = build.slowestMojos.split(', ')[0]
+    const separator = slowest.lastIndexOf('=')
+    return `${slowest.substring(0, separator)} (${slowest.substring(separator + 1)} ms)`
+}
+
+// BUILD_CACHE is 'goals=<n>, localLoads=<n>, localLoadBytes=<n>, localStores=<n>, localStoreBytes=<n>, remoteEnabled=false, scanMillis=<n>'
+// or, as remote loads can't be told apart from stores, 'goals=<n>, localEntries=<n>, localEntryBytes=<n>, remoteEnabled=true, scanMillis=<n>'
+// goals is absent when mojo executions were not counted
+function renderBuildCache(build: BuildMetadata): string {
+    if (!build.buildCache) {
+        return ''
+    }
+    const stats = new Map(
+        build.buildCache.split(', ').map(entry => {
+            const separator = entry.indexOf('=')
+            return [entry.substring(0, separator), entry.substring(separator + 1)] as [string, string]
+        })
+    )
+    const outOfGoals = stats.has('goals') ? `/${stats.get('goals')}` : ''
+    if (stats.has('localEntries')) {
+        return `${stats.get('localEntries')}${outOfGoals} goals loaded or stored`
+    }
+    return `${stats.get('localLoads')}${outOfGoals} goals loaded, ${stats.get('localStores')} stored`
+}
+
+// TRANSFER_REPOSITORIES is '<repositoryId>: downloads=<n>, bytes=<n>, millis=<n>, bytesPerSecond=<n>, failures=<n>; ...',
+// the repository with the longest download time first
+function renderSlowestRepository(build: BuildMetadata): string {
+    if (!build.transferRepositories) {
+        return ''
+    }
+    const slowest = build.transferRepositories.split('; ')[0]
+    const separator = slowest.indexOf(': ')
+    const stats = new Map(
+        slowest
+            .substring(separator + 2)
+            .split(', ')
+            .map(entry => entry.split('=') as [string, string])
+    )
+    const megabytes = (Number(stats.get('bytes')) / (1024 * 1024)).toFixed(1)
+    const seconds = (Number(stats.get('millis')) / 1000).toFixed(1)
+    return `${slowest.substring(0, separator)} (${megabytes} MB in ${seconds} s)`
+}
+
 function renderBuildScan(build: BuildMetadata): string {
     if (build.buildScanLink) {
         return renderBuildScanBadge('PUBLISHED', '06A0CE', build.buildScanLink)
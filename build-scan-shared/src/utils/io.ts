@@ -54,6 +54,14 @@ export function copyFileSync(source: string, dest: string): void {
     }
 }
 
+export function getFileSize(fileName: string): number | undefined {
+    try {
+        return fs.statSync(fileName).size
+    } catch {
+        return undefined
+    }
+}
+
 export function renameSync(oldPath: string, newPath: string): void {
     if (!fs.existsSync(newPath)) {
         fs.mkdirSync(newPath, {recursive: true})
@@ -0,0 +1,45 @@
+package com.gradle;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local HTTP server standing in for Develocity so the benchmark needs no network
+// Every request is rejected, Develocity then disables its features for the build and publishes nothing
+final class DevelocityStandIn implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private DevelocityStandIn(HttpServer server) {
+        this.server = server;
+    }
+
+    static DevelocityStandIn start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        DevelocityStandIn standIn = new DevelocityStandIn(server);
+        server.createContext("/", exchange -> {
+            standIn.requests.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        return standIn;
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gradle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Multi-module Maven project where each module depends on the previous one
+final class GeneratedProject {
+
+    private GeneratedProject() {}
+
+    static Path create(Path dir, int modules, int classesPerModule) throws IOException {
+        StringBuilder moduleList = new StringBuilder();
+        for (int module = 0; module < modules; module++) {
+            moduleList.append("<module>module-").append(module).append("</module>");
+            createModule(dir.resolve("module-" + module), module, classesPerModule);
+        }
+        write(dir.resolve("pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">"
+                + "<modelVersion>4.0.0</modelVersion>"
+                + "<groupId>com.gradle.e2e</groupId><artifactId>parent</artifactId><version>1.0</version><packaging>pom</packaging>"
+                + "<properties><maven.compiler.release>8</maven.compiler.release><project.build.sourceEncoding>UTF-8</project.build.sourceEncoding></properties>"
+                + "<modules>" + moduleList + "</modules>"
+                + "</project>");
+        return dir;
+    }
+
+    private static void createModule(Path dir, int module, int classesPerModule) throws IOException {
+        String dependency = module == 0 ? "" : "<dependencies><dependency><groupId>com.gradle.e2e</groupId><artifactId>module-" + (module - 1) + "</artifactId><version>1.0</version></dependency></dependencies>";
+        write(dir.resolve("pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">"
+                + "<modelVersion>4.0.0</modelVersion>"
+                + "<parent><groupId>com.gradle.e2e</groupId><artifactId>parent</artifactId><version>1.0</version></parent>"
+                + "<artifactId>module-" + module + "</artifactId>"
+                + dependency
+                + "</project>");
+        for (int i = 0; i < classesPerModule; i++) {
+            String className = "Class" + i;
+            write(dir.resolve("src/main/java/e2e/module" + module + "/" + className + ".java"), "package e2e.module" + module + ";\n"
+                    + "public class " + className + " {\n"
+                    + "    public int compute(int value) {\n"
+                    + "        return value * " + (i + 1) + " + " + module + ";\n"
+                    + "    }\n"
+                    + "}\n");
+        }
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,232 @@
+package com.gradle;
+
+import com.gradle.develocity.agent.maven.api.DevelocityApi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+// Measures the wall clock time the capture extension adds to real Maven builds of a generated project
+// Develocity can't publish without a real server, each setup therefore runs with and without the capture extension:
+// - against a local stand-in rejecting every request, Develocity publishes nothing as after a successful publication
+// - offline, Develocity writes a scan dump as it does when the publication fails, the extension captures it
+// Capture inputs are read from the environment, e.g. INPUT_CAPTURE_MODE=COPY
+// Short builds, e.g. -De2e.goals=validate, measure the startup cost of the extension
+final class OverheadBenchmark {
+
+    private static final String TOTAL_TIME_LINE = "Total time:";
+    private static final int CLASSES_PER_MODULE = 20;
+
+    private enum Setup {
+        BASELINE(false, false, true),
+        CAPTURE(true, false, true),
+        // the extension is loaded but the ON_DEMAND strategy is not requested
+        CAPTURE_DISABLED(true, false, false),
+        BASELINE_SCAN_DUMP(false, true, true),
+        CAPTURE_SCAN_DUMP(true, true, true);
+
+        private final boolean capture;
+        private final boolean scanDump;
+        private final boolean captureEnabled;
+
+        Setup(boolean capture, boolean scanDump, boolean captureEnabled) {
+            this.capture = capture;
+            this.scanDump = scanDump;
+            this.captureEnabled = captureEnabled;
+        }
+    }
+
+    private static final class BuildRun {
+        private final long buildMillis;
+        private final long shutdownMillis;
+        private final long bytesWritten;
+
+        private BuildRun(long buildMillis, long shutdownMillis, long bytesWritten) {
+            this.buildMillis = buildMillis;
+            this.shutdownMillis = shutdownMillis;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+
+    private final String maven = System.getProperty("e2e.maven", "mvn");
+    private final String[] goals = System.getProperty("e2e.goals", "clean package").trim().split("\\s+");
+    private final Path extensionClasses = Paths.get(System.getProperty("e2e.extensionClasses", "target/classes")).toAbsolutePath();
+    private final Path workDir;
+    private final Path develocityJar;
+    private final Path project;
+    private final DevelocityStandIn standIn;
+
+    private OverheadBenchmark(Path workDir, Path develocityJar, Path project, DevelocityStandIn standIn) {
+        this.workDir = workDir;
+        this.develocityJar = develocityJar;
+        this.project = project;
+        this.standIn = standIn;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int modules = Integer.getInteger("e2e.modules", 20);
+        int iterations = Integer.getInteger("e2e.iterations", 5);
+        long maxOverheadMillis = Long.getLong("e2e.maxOverheadMillis", 1000);
+        Path resultFile = Paths.get(System.getProperty("e2e.resultFile", "target/e2e-result.json"));
+        Path workDir = Paths.get(System.getProperty("e2e.workDir", "target/e2e")).toAbsolutePath();
+
+        Path develocityJar = Paths.get(DevelocityApi.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Map<Setup, List<BuildRun>> runs = new EnumMap<>(Setup.class);
+        try (DevelocityStandIn standIn = DevelocityStandIn.start()) {
+            deleteDirectory(workDir);
+            OverheadBenchmark benchmark = new OverheadBenchmark(workDir, develocityJar, GeneratedProject.create(workDir.resolve("project"), modules, CLASSES_PER_MODULE), standIn);
+
+            // resolves the plugins so the offline builds don't miss any, not measured
+            benchmark.run(Setup.BASELINE);
+
+            // setups are interleaved so a slower period of the machine affects all of them
+            for (int i = 0; i < iterations; i++) {
+                for (Setup setup : Setup.values()) {
+                    runs.computeIfAbsent(setup, s -> new ArrayList<>()).add(benchmark.run(setup));
+                }
+            }
+            System.out.println("Develocity stand-in received " + standIn.getRequests() + " requests");
+        }
+
+        StringBuilder result = new StringBuilder("[\n");
+        System.out.printf("%-20s %12s %12s %14s%n", "setup", "build (ms)", "shutdown (ms)", "bytes written");
+        for (Setup setup : Setup.values()) {
+            List<BuildRun> setupRuns = runs.get(setup);
+            long buildMillis = median(setupRuns, run -> run.buildMillis);
+            long shutdownMillis = median(setupRuns, run -> run.shutdownMillis);
+            long bytesWritten = median(setupRuns, run -> run.bytesWritten);
+            System.out.printf("%-20s %12d %12d %14d%n", setup, buildMillis, shutdownMillis, bytesWritten);
+            result.append(String.format("  {\"setup\":\"%s\",\"buildMillis\":%d,\"shutdownMillis\":%d,\"bytesWritten\":%d}%s%n",
+                    setup, buildMillis, shutdownMillis, bytesWritten, setup.ordinal() < Setup.values().length - 1 ? "," : ""));
+        }
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        Files.write(resultFile, result.append("]\n").toString().getBytes(StandardCharsets.UTF_8));
+
+        boolean exceeded = reportOverhead("without scan dump", runs.get(Setup.BASELINE), runs.get(Setup.CAPTURE), maxOverheadMillis);
+        exceeded |= reportOverhead("with capture disabled", runs.get(Setup.BASELINE), runs.get(Setup.CAPTURE_DISABLED), maxOverheadMillis);
+        exceeded |= reportOverhead("with scan dump", runs.get(Setup.BASELINE_SCAN_DUMP), runs.get(Setup.CAPTURE_SCAN_DUMP), maxOverheadMillis);
+        if (exceeded) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean reportOverhead(String description, List<BuildRun> baseline, List<BuildRun> capture, long maxOverheadMillis) {
+        long buildOverhead = median(capture, run -> run.buildMillis) - median(baseline, run -> run.buildMillis);
+        long shutdownOverhead = median(capture, run -> run.shutdownMillis) - median(baseline, run -> run.shutdownMillis);
+        System.out.printf("Capture overhead %s: %+d ms build, %+d ms shutdown%n", description, buildOverhead, shutdownOverhead);
+        if (buildOverhead > maxOverheadMillis) {
+            System.out.printf("Capture overhead %s exceeds %d ms%n", description, maxOverheadMillis);
+            return true;
+        }
+        return false;
+    }
+
+    private BuildRun run(Setup setup) throws IOException, InterruptedException {
+        Path storageDir = workDir.resolve("develocity");
+        Path outputDir = workDir.resolve("output");
+        // scan dumps left by the previous build would be captured again
+        deleteDirectory(storageDir.resolve("build-scan-data"));
+        deleteDirectory(outputDir);
+
+        String extClassPath = setup.capture ? develocityJar + File.pathSeparator + extensionClasses : develocityJar.toString();
+        List<String> command = new ArrayList<>();
+        command.add(maven);
+        command.add("-B");
+        Collections.addAll(command, goals);
+        Collections.addAll(command,
+                "-Dmaven.ext.class.path=" + extClassPath,
+                "-Ddevelocity.url=" + standIn.getUrl(),
+                "-Ddevelocity.storage.directory=" + storageDir);
+        if (setup.scanDump) {
+            command.add("-o");
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(project.toFile()).redirectErrorStream(true);
+        Map<String, String> environment = processBuilder.environment();
+        environment.remove("MAVEN_OPTS");
+        environment.put("BUILD_SCAN_DATA_DIR", storageDir.resolve("build-scan-data").toString());
+        environment.put("BUILD_SCAN_DATA_COPY_DIR", outputDir.resolve("build-scan-data-copy").toString());
+        environment.put("BUILD_SCAN_METADATA_DIR", outputDir.resolve("build-scan-metadata").toString());
+        environment.put("BUILD_SCAN_METADATA_COPY_DIR", outputDir.resolve("build-scan-metadata-copy").toString());
+        environment.put("INPUT_JOB_NAME", "e2e");
+        if (!setup.captureEnabled) {
+            environment.put("INPUT_CAPTURE_STRATEGY", "ON_DEMAND");
+            environment.put("CAPTURE_BUILD_SCAN", "false");
+        }
+
+        long start = System.nanoTime();
+        long buildEnd = 0;
+        Process process = processBuilder.start();
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                if (buildEnd == 0 && line.contains(TOTAL_TIME_LINE)) {
+                    buildEnd = System.nanoTime();
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        long end = System.nanoTime();
+        if (exitCode != 0 || buildEnd == 0) {
+            output.forEach(System.out::println);
+            throw new IllegalStateException("Build of " + setup + " failed with exit code " + exitCode);
+        }
+
+        return new BuildRun(TimeUnit.NANOSECONDS.toMillis(end - start), TimeUnit.NANOSECONDS.toMillis(end - buildEnd), sizeOfDirectory(outputDir));
+    }
+
+    private static long median(List<BuildRun> runs, ToLongFunction<BuildRun> value) {
+        long[] values = runs.stream().mapToLong(value).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    private static long sizeOfDirectory(Path dir) throws IOException {
+        AtomicLong size = new AtomicLong();
+        if (Files.exists(dir)) {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    size.addAndGet(attrs.size());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return size.get();
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
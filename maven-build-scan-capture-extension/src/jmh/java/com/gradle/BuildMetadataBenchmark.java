@@ -0,0 +1,54 @@
+package com.gradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BuildMetadataBenchmark {
+
+    private MavenBuildScanCaptureListener listener;
+    private BuildMetadata metadata;
+
+    @Setup
+    public void setup() {
+        BuildState buildState = new BuildState();
+        buildState.setBuildId(UUID.randomUUID().toString());
+        buildState.setBuildTimestamp(String.valueOf(System.currentTimeMillis()));
+        buildState.setMavenVersion("3.9.9");
+        buildState.setArtifactId("maven-build-scan-capture-extension");
+        buildState.setMavenGoals(Arrays.asList("clean", "verify"));
+        buildState.setBuildScanLink("https://develocity.example.com/s/abcdefghijklm");
+
+        listener = new MavenBuildScanCaptureListener();
+        listener.setBuildState(buildState);
+        listener.setConfiguration(DefaultConfiguration.get());
+        metadata = listener.collectBuildScanMetadata();
+    }
+
+    @Benchmark
+    public BuildMetadata collectBuildScanMetadata() {
+        return listener.collectBuildScanMetadata();
+    }
+
+    @Benchmark
+    public String toJournalRecord() {
+        return metadata.toJournalRecord();
+    }
+}
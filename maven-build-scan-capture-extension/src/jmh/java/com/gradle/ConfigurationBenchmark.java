@@ -0,0 +1,51 @@
+package com.gradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigurationBenchmark {
+
+    // ON_DEMAND evaluates every branch of the capture strategy
+    @Param({"ALWAYS", "ON_FAILURE", "ON_DEMAND"})
+    String captureStrategy;
+
+    private DefaultConfiguration configuration;
+
+    @Setup
+    public void setup() {
+        configuration = DefaultConfiguration.from(Collections.singletonMap(DefaultConfiguration.CONFIG_KEY_CAPTURE_STRATEGY, captureStrategy));
+    }
+
+    @Benchmark
+    public Configuration get() {
+        return DefaultConfiguration.get();
+    }
+
+    // Each Maven invocation checks both flags, for the build failure and the build scan link
+    @Benchmark
+    public void isCaptureEnabled(Blackhole blackhole) {
+        blackhole.consume(configuration.isCaptureUnpublishedBuildScans(false));
+        blackhole.consume(configuration.isCaptureUnpublishedBuildScans(true));
+        blackhole.consume(configuration.isCaptureBuildScanLinks(false));
+        blackhole.consume(configuration.isCaptureBuildScanLinks(true));
+    }
+}
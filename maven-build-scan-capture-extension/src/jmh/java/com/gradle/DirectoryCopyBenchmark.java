@@ -0,0 +1,77 @@
+package com.gradle;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Compares the NIO copy engine with the commons-io copy it replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class DirectoryCopyBenchmark {
+
+    // SMALL_FILES: 5000 files of 4KB, LARGE_FILES: 4 files of 64MB
+    @Param({"SMALL_FILES", "LARGE_FILES"})
+    String tree;
+
+    private Path source;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        source = Files.createTempDirectory("copy-source").resolve("build-scan-data");
+        int files = tree.equals("SMALL_FILES") ? 5000 : 4;
+        byte[] content = new byte[tree.equals("SMALL_FILES") ? 4096 : 64 * 1024 * 1024];
+        for (int i = 0; i < files; i++) {
+            Path dir = Files.createDirectories(source.resolve("dir-" + i / 100));
+            Files.write(dir.resolve("file-" + i), content);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ScanDataTrees.delete(source);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        target = Files.createTempDirectory("copy-target").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        FileUtils.deleteDirectory(target);
+    }
+
+    @Benchmark
+    public File commonsIo() throws IOException {
+        FileUtils.copyDirectory(source.toFile(), target);
+        return target;
+    }
+
+    @Benchmark
+    public File directoryCopier() throws IOException {
+        DirectoryCopier.copyDirectory(source, target.toPath(), null);
+        return target;
+    }
+}
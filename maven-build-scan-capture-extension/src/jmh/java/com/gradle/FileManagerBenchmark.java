@@ -0,0 +1,97 @@
+package com.gradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// File operations are measured one at a time, each invocation works on a fresh target
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class FileManagerBenchmark {
+
+    // Scan dumps range from a few hundred KB for small builds to tens of MB for large multi-module builds
+    @Param({"262144", "4194304", "67108864"})
+    int scanDumpSize;
+
+    @Param({"1", "3"})
+    int scanDumps;
+
+    private static final DefaultFileManager FILE_MANAGER = new DefaultFileManager();
+
+    private Path buildScanDataDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buildScanDataDir = ScanDataTrees.create(scanDumps, scanDumps, scanDumpSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ScanDataTrees.delete(buildScanDataDir);
+    }
+
+    @State(Scope.Thread)
+    public static class CopyTarget {
+
+        File dir;
+
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            dir = new File(Files.createTempDirectory("build-scan-data-copy").toFile(), "build-scan-data");
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            FILE_MANAGER.deleteDirectory(dir.getParentFile());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteSource {
+
+        File dir;
+
+        @Setup(Level.Invocation)
+        public void setup(FileManagerBenchmark benchmark) throws IOException {
+            dir = Files.createTempDirectory("build-scan-data-delete").toFile();
+            FILE_MANAGER.copyDirectory(benchmark.buildScanDataDir.toFile(), dir, null);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            FILE_MANAGER.deleteDirectory(dir);
+        }
+    }
+
+    @Benchmark
+    public File copyDirectory(CopyTarget target) throws IOException {
+        FILE_MANAGER.copyDirectory(buildScanDataDir.toFile(), target.dir, null);
+        return target.dir;
+    }
+
+    @Benchmark
+    public File deleteDirectory(DeleteSource source) throws IOException {
+        FILE_MANAGER.deleteDirectory(source.dir);
+        return source.dir;
+    }
+}
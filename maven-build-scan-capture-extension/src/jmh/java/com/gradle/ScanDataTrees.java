@@ -0,0 +1,55 @@
+package com.gradle;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Generates synthetic build-scan-data trees mimicking the Develocity Maven extension layout
+final class ScanDataTrees {
+
+    static final String VERSION = "2.5.0";
+    private static final int FILES_PER_DIRECTORY = 1000;
+
+    private ScanDataTrees() {}
+
+    // Creates scanDumps dumps under <version>/previous and fills up to fileCount with unrelated files
+    static Path create(int fileCount, int scanDumps, int scanDumpSize) throws IOException {
+        Path root = Files.createTempDirectory("scan-data-tree").resolve("build-scan-data");
+        Path versionDir = root.resolve(VERSION);
+        byte[] content = new byte[scanDumpSize];
+
+        for (int i = 0; i < scanDumps; i++) {
+            Path buildDir = Files.createDirectories(versionDir.resolve(ScanDumpLocator.PREVIOUS_DIR).resolve("build-" + i));
+            Files.write(buildDir.resolve(ScanDumpLocator.SCAN_DUMP_FILE), content);
+        }
+
+        Path unrelatedDir = null;
+        for (int i = 0; i < fileCount - scanDumps; i++) {
+            if (i % FILES_PER_DIRECTORY == 0) {
+                unrelatedDir = Files.createDirectories(versionDir.resolve("resources").resolve("dir-" + i / FILES_PER_DIRECTORY));
+            }
+            Files.createFile(unrelatedDir.resolve("file-" + i));
+        }
+
+        return root;
+    }
+
+    static void delete(Path root) throws IOException {
+        Files.walkFileTree(root.getParent(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.gradle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ScanDumpLocatorBenchmark {
+
+    private static final String SCAN_DUMP_REGEX = ".*/build-scan-data/.*/previous/.*/scan.scan";
+
+    @Param({"10000", "100000", "1000000"})
+    int fileCount;
+
+    // no dump is the common case once a build scan got published
+    @Param({"0", "3"})
+    int scanDumps;
+
+    private Path buildScanDataDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        buildScanDataDir = ScanDataTrees.create(fileCount, scanDumps, 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ScanDataTrees.delete(buildScanDataDir);
+    }
+
+    @Benchmark
+    public Optional<Path> legacyFind() throws IOException {
+        // unbounded walk as previously done by MavenBuildScanCaptureListener
+        try (Stream<Path> pathStream = Files.find(buildScanDataDir,
+                Integer.MAX_VALUE,
+                (filePath, fileAttr) -> filePath.toString().replace("\\", "/").matches(SCAN_DUMP_REGEX) && fileAttr.isRegularFile())) {
+            return pathStream.findFirst();
+        }
+    }
+
+    @Benchmark
+    public List<Path> scanDumpLocator() throws IOException {
+        return ScanDumpLocator.find(buildScanDataDir.toFile());
+    }
+}
@@ -0,0 +1,140 @@
+package com.gradle;
+
+import com.gradle.develocity.agent.maven.api.cache.BuildCacheApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Local build cache activity of a build, derived from the cache directory as the Develocity API exposes no cache outcome
+// Develocity updates the modification time of the entries it loads, for its cleanup, so at the end of the build entries
+// created during the build were stored and entries existing before and modified during the build were loaded
+// Entries loaded from the remote cache are also created locally, with the remote cache enabled created entries are not
+// told apart from stored ones and only the entries used during the build are counted
+class BuildCacheStats {
+
+    static final String DEFAULT_CACHE_DIR = "build-cache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildCacheStats.class);
+    // cache entries are named by their key, other files of the cache directory are locks and cleanup markers
+    private static final DirectoryStream.Filter<Path> IS_ENTRY = path -> path.getFileName().toString().indexOf('.') < 0;
+
+    private final Path cacheDir;
+    private final boolean remoteEnabled;
+    private final long startMillis;
+    private final FutureTask<Set<Path>> existingEntries = new FutureTask<>(this::listEntries);
+    // written by the listing before its result is published, read once the listing is complete
+    private long scanNanos;
+    private String summary;
+
+    private BuildCacheStats(Path cacheDir, boolean remoteEnabled, long startMillis) {
+        this.cacheDir = cacheDir;
+        this.remoteEnabled = remoteEnabled;
+        this.startMillis = startMillis;
+    }
+
+    // Only the entry names are listed when the build starts, in the background so the configuration of the session does
+    // not wait for it, their attributes are read once at the end of the build
+    // Entries stored before the listing completes are counted as loaded, the first goals of a build rarely use the cache
+    // Returns null when the local cache is disabled
+    static BuildCacheStats start(BuildCacheApi buildCache, Path storageDirectory) {
+        return start(buildCache, storageDirectory, listing -> {
+            Thread thread = new Thread(listing, "build-scan-cache-stats");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    static BuildCacheStats start(BuildCacheApi buildCache, Path storageDirectory, Executor listingExecutor) {
+        if (!buildCache.getLocal().isEnabled()) {
+            return null;
+        }
+        Path cacheDir = buildCache.getLocal().getDirectory() != null ? buildCache.getLocal().getDirectory().toPath() : storageDirectory.resolve(DEFAULT_CACHE_DIR);
+        BuildCacheStats buildCacheStats = new BuildCacheStats(cacheDir, buildCache.getRemote().isEnabled(), System.currentTimeMillis());
+        listingExecutor.execute(buildCacheStats.existingEntries);
+        return buildCacheStats;
+    }
+
+    // goals=<n>, localLoads=<n>, localLoadBytes=<n>, localStores=<n>, localStoreBytes=<n>, remoteEnabled=false, scanMillis=<n>
+    // goals=<n>, localEntries=<n>, localEntryBytes=<n>, remoteEnabled=true, scanMillis=<n>
+    // goals is omitted when mojo executions are not counted, scanMillis is the time spent listing and reading the cache
+    // directory, the summary is computed once
+    synchronized String getSummary(long goals) {
+        if (summary == null) {
+            Set<Path> existing;
+            try {
+                existing = existingEntries.get();
+            } catch (ExecutionException e) {
+                LOGGER.debug("Could not list build cache entries of " + cacheDir, e.getCause());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            long start = System.nanoTime();
+            long[] counters = new long[4];
+            try {
+                forEachEntry(cacheDir, true, (entry, attributes) -> {
+                    boolean loaded = existing.contains(entry);
+                    if (!loaded || attributes.lastModifiedTime().toMillis() >= startMillis) {
+                        int offset = loaded ? 0 : 2;
+                        counters[offset]++;
+                        counters[offset + 1] += attributes.size();
+                    }
+                });
+            } catch (IOException e) {
+                LOGGER.debug("Could not read build cache entries of " + cacheDir, e);
+                return null;
+            }
+            scanNanos += System.nanoTime() - start;
+            summary = (goals >= 0 ? "goals=" + goals + ", " : "")
+                    + (remoteEnabled
+                        ? "localEntries=" + (counters[0] + counters[2]) + ", localEntryBytes=" + (counters[1] + counters[3])
+                        : "localLoads=" + counters[0] + ", localLoadBytes=" + counters[1] + ", localStores=" + counters[2] + ", localStoreBytes=" + counters[3])
+                    + ", remoteEnabled=" + remoteEnabled
+                    + ", scanMillis=" + TimeUnit.NANOSECONDS.toMillis(scanNanos);
+        }
+        return summary;
+    }
+
+    private Set<Path> listEntries() throws IOException {
+        long start = System.nanoTime();
+        Set<Path> entries = new HashSet<>();
+        forEachEntry(cacheDir, false, (entry, ignored) -> entries.add(entry));
+        scanNanos = System.nanoTime() - start;
+        return entries;
+    }
+
+    // Entries are stored as <cache dir>/<layout version>/<key>, attributes are only read when needed
+    private static void forEachEntry(Path cacheDir, boolean readAttributes, BiConsumer<Path, BasicFileAttributes> consumer) throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> layoutDirs = Files.newDirectoryStream(cacheDir, path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))) {
+            for (Path layoutDir : layoutDirs) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(layoutDir, IS_ENTRY)) {
+                    for (Path entry : entries) {
+                        try {
+                            consumer.accept(cacheDir.relativize(entry), readAttributes ? Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS) : null);
+                        } catch (NoSuchFileException e) {
+                            // removed by the cache cleanup since it was listed
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.gradle;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Metadata entries of a build, written either as a record of the job journal or as a legacy <buildId>.txt properties file
+// A journal record is a single JSON line: {"version":1,"buildId":"<buildId>","entries":{"<KEY>":"<value>",...}}
+// Records of the same build are merged in order by the consumer, so later records override earlier entries
+final class BuildMetadata {
+
+    static final int JOURNAL_VERSION = 1;
+    static final String JOURNAL_EXTENSION = ".jsonl";
+    static final String LEGACY_EXTENSION = ".txt";
+    // Entries describing what the current build did, a captured scan dump may be of another build of the job
+    static final Set<String> CURRENT_BUILD_KEYS = new HashSet<>(Arrays.asList(
+            "BUILD_SCAN_LINK", "SLOWEST_MODULES", "SLOWEST_MOJOS", "TRANSFER_REPOSITORIES", "SLOWEST_DOWNLOADS",
+            "TEST_RESULTS", "SLOWEST_TEST_CLASSES", "JVM_PROFILE", "BUILD_CACHE"));
+
+    private final String buildId;
+    private final Map<String, String> entries = new LinkedHashMap<>();
+
+    BuildMetadata(String buildId) {
+        this.buildId = buildId;
+    }
+
+    static File getJournalFile(String metadataDir, String jobName) {
+        return Paths.get(metadataDir, "journal-" + jobName.replaceAll("[^A-Za-z0-9._-]", "-") + JOURNAL_EXTENSION).toFile();
+    }
+
+    static File getLegacyFile(String metadataDir, String buildId) {
+        return Paths.get(metadataDir, buildId + LEGACY_EXTENSION).toFile();
+    }
+
+    String getBuildId() {
+        return buildId;
+    }
+
+    BuildMetadata put(String key, Object value) {
+        entries.put(key, String.valueOf(value));
+        return this;
+    }
+
+    // Copies the entries for another build, used when saving the current build metadata for a captured scan dump
+    // Entries of the current build only are left out, its link would mark an unpublished scan dump as published
+    BuildMetadata withBuildId(String otherBuildId) {
+        BuildMetadata copy = new BuildMetadata(otherBuildId);
+        copy.entries.putAll(entries);
+        copy.entries.keySet().removeAll(CURRENT_BUILD_KEYS);
+        return copy;
+    }
+
+    String toProperties() {
+        StringBuilder properties = new StringBuilder();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            properties.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return properties.toString();
+    }
+
+    // Entries already present in the properties are replaced on their line, the others are appended
+    String mergeIntoProperties(String properties) {
+        Map<String, String> remaining = new LinkedHashMap<>(entries);
+        StringBuilder merged = new StringBuilder();
+        if (properties != null) {
+            for (String line : properties.split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int separator = line.indexOf('=');
+                String key = separator > 0 ? line.substring(0, separator) : line;
+                if (entries.containsKey(key)) {
+                    // duplicated keys written by former republications are collapsed
+                    if (remaining.containsKey(key)) {
+                        merged.append(key).append('=').append(remaining.remove(key)).append('\n');
+                    }
+                } else {
+                    merged.append(line).append('\n');
+                }
+            }
+        }
+        for (Map.Entry<String, String> entry : remaining.entrySet()) {
+            merged.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return merged.toString();
+    }
+
+    String toJournalRecord() {
+        StringBuilder record = new StringBuilder("{\"version\":").append(JOURNAL_VERSION).append(",\"buildId\":");
+        appendJsonString(record, buildId).append(",\"entries\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (!first) {
+                record.append(',');
+            }
+            appendJsonString(record, entry.getKey()).append(':');
+            appendJsonString(record, entry.getValue());
+            first = false;
+        }
+        return record.append("}}\n").toString();
+    }
+
+    private static StringBuilder appendJsonString(StringBuilder builder, String value) {
+        if (value == null) {
+            return builder.append("null");
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return "BuildMetadata{" +
+                "buildId=" + buildId +
+                ", entries=" + entries +
+                '}';
+    }
+}
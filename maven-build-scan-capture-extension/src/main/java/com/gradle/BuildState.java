@@ -1,5 +1,8 @@
 package com.gradle;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -9,12 +12,18 @@ class BuildState {
     private final AtomicReference<String> buildTimestamp = new AtomicReference<>();
     private final AtomicReference<String> mavenVersion = new AtomicReference<>();
     private final AtomicReference<String> artifactId = new AtomicReference<>();
-    private final AtomicReference<String> mavenGoals = new AtomicReference<>();
+    private final AtomicReference<List<String>> mavenGoals = new AtomicReference<>(Collections.emptyList());
     private final AtomicBoolean isBuildFailure = new AtomicBoolean(false);
     private final AtomicReference<String> buildScanLink = new AtomicReference<>();
 
+    // Generated on first use, the first UUID seeds a SecureRandom which is slow to start
     String getBuildId() {
-        return buildId.get();
+        String id = buildId.get();
+        if (id == null) {
+            buildId.compareAndSet(null, UUID.randomUUID().toString());
+            id = buildId.get();
+        }
+        return id;
     }
 
     void setBuildId(String buildId) {
@@ -46,10 +55,10 @@ class BuildState {
     }
 
     String getMavenGoals() {
-        return mavenGoals.get();
+        return String.join(" ", mavenGoals.get());
     }
 
-    void setMavenGoals(String goals) {
+    void setMavenGoals(List<String> goals) {
         mavenGoals.set(goals);
     }
 
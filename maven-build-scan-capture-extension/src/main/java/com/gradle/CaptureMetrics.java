@@ -0,0 +1,114 @@
+package com.gradle;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Times the phases of a capture, each phase is emitted as a JFR event when JFR is available
+// and accumulated into a single metrics record written next to the build metadata
+final class CaptureMetrics {
+
+    static final int METRICS_VERSION = 1;
+    static final String METRICS_FILE_PREFIX = "capture-metrics-";
+
+    // bytes and files handled by each phase:
+    // LOCATE scan dumps found, EVICT stale scan dumps removed, COPY scan dump bytes transferred,
+    // TEST_REPORTS test report bytes and report files parsed, METADATA records appended,
+    // DELETE scan dumps removed, GITHUB_OUTPUT lines appended
+    enum Phase {
+        LOCATE, EVICT, COPY, TEST_REPORTS, METADATA, DELETE, GITHUB_OUTPUT
+    }
+
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private final Map<Phase, PhaseStats> stats = new EnumMap<>(Phase.class);
+
+    CaptureMetrics() {
+        for (Phase phase : Phase.values()) {
+            stats.put(phase, new PhaseStats());
+        }
+    }
+
+    static File getMetricsFile(String metadataDir, String jobName) {
+        return Paths.get(metadataDir, METRICS_FILE_PREFIX + jobName.replaceAll("[^A-Za-z0-9._-]", "-") + BuildMetadata.JOURNAL_EXTENSION).toFile();
+    }
+
+    Timer start(Phase phase) {
+        return new Timer(phase, JFR_AVAILABLE ? CapturePhaseEvent.start() : null);
+    }
+
+    long getDurationNanos(Phase phase) {
+        return stats.get(phase).durationNanos.sum();
+    }
+
+    long getBytes(Phase phase) {
+        return stats.get(phase).bytes.sum();
+    }
+
+    long getFiles(Phase phase) {
+        return stats.get(phase).files.sum();
+    }
+
+    // {"version":1,"buildId":"<buildId>","phases":{"LOCATE":{"count":1,"durationNanos":1000,"bytes":0,"files":1},...}}
+    String toRecord(String buildId) {
+        StringBuilder record = new StringBuilder("{\"version\":").append(METRICS_VERSION)
+                .append(",\"buildId\":").append(buildId == null ? "null" : "\"" + buildId + "\"")
+                .append(",\"phases\":{");
+        boolean first = true;
+        for (Map.Entry<Phase, PhaseStats> entry : stats.entrySet()) {
+            if (!first) {
+                record.append(',');
+            }
+            PhaseStats phaseStats = entry.getValue();
+            record.append('"').append(entry.getKey().name()).append("\":{")
+                    .append("\"count\":").append(phaseStats.count.sum())
+                    .append(",\"durationNanos\":").append(phaseStats.durationNanos.sum())
+                    .append(",\"bytes\":").append(phaseStats.bytes.sum())
+                    .append(",\"files\":").append(phaseStats.files.sum())
+                    .append('}');
+            first = false;
+        }
+        return record.append("}}\n").toString();
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, CaptureMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    final class Timer {
+
+        private final Phase phase;
+        private final long startNanos = System.nanoTime();
+        private final Object event;
+
+        private Timer(Phase phase, Object event) {
+            this.phase = phase;
+            this.event = event;
+        }
+
+        void stop(long bytes, long files) {
+            PhaseStats phaseStats = stats.get(phase);
+            phaseStats.count.increment();
+            phaseStats.durationNanos.add(System.nanoTime() - startNanos);
+            phaseStats.bytes.add(bytes);
+            phaseStats.files.add(files);
+            if (event != null) {
+                CapturePhaseEvent.stop(event, phase.name(), bytes, files);
+            }
+        }
+    }
+
+    private static final class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder durationNanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder files = new LongAdder();
+    }
+}
@@ -0,0 +1,43 @@
+package com.gradle;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Only loaded by CaptureMetrics when jdk.jfr is available, so the extension still runs on JVMs without JFR
+@Name("com.gradle.BuildScanCapturePhase")
+@Label("Build Scan Capture Phase")
+@Category({"Develocity", "Build Scan Capture"})
+@Description("Phase of the capture of build scan data and metadata")
+class CapturePhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Files")
+    long files;
+
+    static Object start() {
+        CapturePhaseEvent event = new CapturePhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void stop(Object begunEvent, String phase, long bytes, long files) {
+        CapturePhaseEvent event = (CapturePhaseEvent) begunEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.bytes = bytes;
+            event.files = files;
+            event.commit();
+        }
+    }
+}
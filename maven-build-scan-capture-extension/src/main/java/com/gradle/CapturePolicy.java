@@ -0,0 +1,86 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decides whether a scan dump can be captured before any data is transferred
+// The job budget is shared by every Maven invocation of the job through a counter file next to the staged captures
+class CapturePolicy {
+
+    static final String SKIPPED_MAX_DUMP_SIZE = "max-dump-size";
+    static final String SKIPPED_MIN_FREE_SPACE = "min-free-space";
+    static final String SKIPPED_MAX_JOB_SIZE = "max-job-size";
+    static final String CAPTURED_BYTES_FILE = "captured-bytes";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CapturePolicy.class);
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final Map<Path, Long> reservations = new ConcurrentHashMap<>();
+    private long plannedBytes;
+
+    CapturePolicy(Configuration configuration, FileManager fileManager) {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+    }
+
+    // Returns the reason to skip the capture, or null if the scan dump can be captured
+    String evaluate(Path scanDumpDir) throws IOException {
+        long maxDumpSize = configuration.getCaptureMaxDumpSize();
+        long minFreeSpace = configuration.getCaptureMinFreeSpace();
+        long maxJobSize = configuration.getCaptureMaxJobSize();
+        if (maxDumpSize <= 0 && minFreeSpace <= 0 && maxJobSize <= 0) {
+            return null;
+        }
+
+        long dumpSize = fileManager.sizeOfDirectory(scanDumpDir.toFile());
+        if (maxDumpSize > 0 && dumpSize > maxDumpSize) {
+            LOGGER.info("Build scan " + scanDumpDir.getFileName() + " size " + dumpSize + " exceeds " + maxDumpSize + " bytes");
+            return SKIPPED_MAX_DUMP_SIZE;
+        }
+
+        // a move within the file system takes no additional space, only copied data is counted
+        long copiedBytes = configuration.getCaptureMode() == Configuration.CaptureMode.MOVE ? 0 : dumpSize;
+        if (minFreeSpace > 0) {
+            long usableSpace = fileManager.getUsableSpace(new File(configuration.getBuildScanDataCopyDir()));
+            if (usableSpace - plannedBytes - copiedBytes < minFreeSpace) {
+                LOGGER.info("Build scan " + scanDumpDir.getFileName() + " would leave less than " + minFreeSpace + " free bytes (" + usableSpace + " usable)");
+                return SKIPPED_MIN_FREE_SPACE;
+            }
+        }
+
+        if (maxJobSize > 0) {
+            if (!fileManager.addToCounter(getCapturedBytesFile(), dumpSize, maxJobSize)) {
+                LOGGER.info("Build scan " + scanDumpDir.getFileName() + " would exceed the " + maxJobSize + " bytes captured by the job");
+                return SKIPPED_MAX_JOB_SIZE;
+            }
+            reservations.put(scanDumpDir, dumpSize);
+        }
+
+        plannedBytes += copiedBytes;
+        return null;
+    }
+
+    // Gives the bytes reserved for a capture which did not complete back to the job budget
+    void release(Path scanDumpDir) {
+        Long reservedBytes = reservations.remove(scanDumpDir);
+        if (reservedBytes != null) {
+            try {
+                fileManager.addToCounter(getCapturedBytesFile(), -reservedBytes, 0);
+            } catch (IOException e) {
+                LOGGER.warn("Could not release captured bytes of " + scanDumpDir.getFileName(), e);
+            }
+        }
+    }
+
+    private File getCapturedBytesFile() {
+        return Paths.get(configuration.getBuildScanDataCopyDir(), ScanDumpCapture.STAGING_DIR, CAPTURED_BYTES_FILE).toFile();
+    }
+}
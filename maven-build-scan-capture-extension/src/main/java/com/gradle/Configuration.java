@@ -1,7 +1,13 @@
 package com.gradle;
 
+import java.time.Duration;
+
 interface Configuration {
 
+    enum CaptureMode {
+        COPY, MOVE, ARCHIVE, STORE
+    }
+
     String getWorkflowName();
 
     String getJobName();
@@ -10,12 +16,39 @@ interface Configuration {
 
     String getBuildId();
 
+    // False when no capture applies to the build whatever its outcome
+    boolean isCaptureEnabled();
+
     boolean isCaptureUnpublishedBuildScans(boolean isBuildFailure);
 
     boolean isCaptureBuildScanLinks(boolean isBuildFailure);
 
+    CaptureMode getCaptureMode();
+
+    int getCaptureCompressionLevel();
+
+    Duration getCaptureTimeout();
+
+    boolean isCaptureEager();
+
+    long getCaptureMaxDumpSize();
+
+    long getCaptureMinFreeSpace();
+
+    long getCaptureMaxJobSize();
+
+    Duration getRetentionMaxAge();
+
+    int getRetentionMaxCount();
+
+    long getRetentionMaxSize();
+
+    int getSlowestExecutions();
+
     boolean isBuildScanRepublication();
 
+    boolean isLegacyMetadataFiles();
+
     String getBuildScanDataDir();
 
     String getBuildScanMetadataDir();
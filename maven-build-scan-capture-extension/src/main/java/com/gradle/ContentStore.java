@@ -0,0 +1,121 @@
+package com.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Checksum;
+
+// Content-addressed store of captured files, shared by every build of the job:
+// - store/objects/<2 first hex digits>/<sha256>: file content, written once whatever the number of builds referencing it
+// - store/manifests/<buildId>.manifest: one '<sha256> <size> <path relative to build-scan-data>' line per file of the build
+final class ContentStore {
+
+    static final String STORE_DIR = "store";
+    static final String OBJECTS_DIR = "objects";
+    static final String MANIFESTS_DIR = "manifests";
+    static final String MANIFEST_EXTENSION = ".manifest";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentStore() {}
+
+    // Each file is read once: it is hashed while being copied to a temporary object, which is then moved to its hash
+    // or discarded when the object already exists, returns the bytes not stored thanks to deduplication
+    static long store(Path source, Path baseDir, Path objectsDir, Path manifest, IntegrityManifest integrityManifest) throws IOException {
+        StringBuilder manifestContent = new StringBuilder();
+        long[] deduplicatedBytes = {0};
+        byte[] buffer = new byte[BUFFER_SIZE];
+        MessageDigest digest = newDigest();
+        Files.createDirectories(objectsDir);
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Checksum checksum = integrityManifest != null ? IntegrityManifest.newChecksum() : null;
+                // the temporary object is created in the objects directory so it can be moved atomically
+                Path tempObject = Files.createTempFile(objectsDir, ".object", ".tmp");
+                String hash;
+                try {
+                    hash = copyAndHash(file, tempObject, digest, checksum, buffer);
+                    if (!storeObject(tempObject, getObject(objectsDir, hash))) {
+                        deduplicatedBytes[0] += attrs.size();
+                    }
+                } finally {
+                    Files.deleteIfExists(tempObject);
+                }
+                if (integrityManifest != null) {
+                    integrityManifest.add(source.relativize(file).toString(), attrs.size(), checksum.getValue());
+                }
+                manifestContent.append(hash).append(' ').append(attrs.size()).append(' ')
+                        .append(baseDir.relativize(file).toString().replace(File.separatorChar, '/')).append('\n');
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Files.createDirectories(manifest.getParent());
+        Files.write(manifest, manifestContent.toString().getBytes(StandardCharsets.UTF_8));
+        return deduplicatedBytes[0];
+    }
+
+    static Path getObject(Path objectsDir, String hash) {
+        return objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Objects are immutable, a concurrent writer of the same object writes the same content
+    // Returns false when the object already exists, the temporary object is then left to be discarded
+    private static boolean storeObject(Path tempObject, Path object) throws IOException {
+        if (Files.exists(object)) {
+            return false;
+        }
+        Files.createDirectories(object.getParent());
+        try {
+            Files.move(tempObject, object, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    // The integrity checksum, if any, is computed in the same read
+    private static String copyAndHash(Path file, Path target, MessageDigest digest, Checksum checksum, byte[] buffer) throws IOException {
+        digest.reset();
+        try (InputStream inputStream = Files.newInputStream(file);
+             OutputStream outputStream = Files.newOutputStream(target)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                if (checksum != null) {
+                    checksum.update(buffer, 0, read);
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,15 +1,32 @@
 package com.gradle;
 
-import java.util.HashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
 
+// Snapshot of the environment resolved once, the capture checks run on every callback and only read fields
 class DefaultConfiguration implements Configuration {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultConfiguration.class);
+
     private enum CaptureStrategy {
         ALWAYS, ON_FAILURE, ON_DEMAND
     }
 
     static final String CONFIG_KEY_CAPTURE_STRATEGY = "INPUT_CAPTURE_STRATEGY";
+    static final String CONFIG_KEY_CAPTURE_MODE = "INPUT_CAPTURE_MODE";
+    static final String CONFIG_KEY_CAPTURE_COMPRESSION_LEVEL = "INPUT_CAPTURE_COMPRESSION_LEVEL";
+    static final String CONFIG_KEY_CAPTURE_TIMEOUT = "INPUT_CAPTURE_TIMEOUT";
+    static final String CONFIG_KEY_CAPTURE_MAX_DUMP_SIZE = "INPUT_CAPTURE_MAX_DUMP_SIZE";
+    static final String CONFIG_KEY_CAPTURE_MIN_FREE_SPACE = "INPUT_CAPTURE_MIN_FREE_SPACE";
+    static final String CONFIG_KEY_CAPTURE_MAX_JOB_SIZE = "INPUT_CAPTURE_MAX_JOB_SIZE";
+    static final String CONFIG_KEY_RETENTION_MAX_AGE = "INPUT_RETENTION_MAX_AGE";
+    static final String CONFIG_KEY_RETENTION_MAX_COUNT = "INPUT_RETENTION_MAX_COUNT";
+    static final String CONFIG_KEY_RETENTION_MAX_SIZE = "INPUT_RETENTION_MAX_SIZE";
     static final String CONFIG_KEY_CAPTURE_CURRENT_ENABLED = "CAPTURE_BUILD_SCAN";
     static final String CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS = "INPUT_CAPTURE_UNPUBLISHED_BUILD_SCANS";
     static final String CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS = "INPUT_CAPTURE_BUILD_SCAN_LINKS";
@@ -22,98 +39,232 @@ class DefaultConfiguration implements Configuration {
     static final String CONFIG_KEY_PR_NUMBER = "PR_NUMBER";
     static final String CONFIG_KEY_BUILD_ID = "BUILD_ID";
     static final String CONFIG_KEY_IS_BUILD_SCAN_REPUBLICATION = "IS_BUILD_SCAN_REPUBLICATION";
+    static final String CONFIG_KEY_LEGACY_METADATA_FILES = "INPUT_LEGACY_METADATA_FILES";
+    static final String CONFIG_KEY_CAPTURE_EAGER = "INPUT_CAPTURE_EAGER";
+    static final String CONFIG_KEY_SLOWEST_EXECUTIONS = "INPUT_SLOWEST_EXECUTIONS";
 
-    final Map<String,String> configuration = new HashMap<>();
+    private static final long MEGABYTE = 1024 * 1024;
 
-    private DefaultConfiguration() {}
-
-    static DefaultConfiguration get() {
-        DefaultConfiguration instance = new DefaultConfiguration();
+    private final String workflowName;
+    private final String jobName;
+    private final String prNumber;
+    private final String buildId;
+    private final CaptureStrategy captureStrategy;
+    private final boolean captureCurrentEnabled;
+    // The capture strategy resolved for both build outcomes
+    private final boolean captureOnSuccess;
+    private final boolean captureOnFailure;
+    private final boolean captureUnpublishedBuildScans;
+    private final boolean captureBuildScanLinks;
+    private final CaptureMode captureMode;
+    private final int captureCompressionLevel;
+    private final Duration captureTimeout;
+    private final boolean captureEager;
+    private final long captureMaxDumpSize;
+    private final long captureMinFreeSpace;
+    private final long captureMaxJobSize;
+    private final Duration retentionMaxAge;
+    private final int retentionMaxCount;
+    private final long retentionMaxSize;
+    private final int slowestExecutions;
+    private final boolean buildScanRepublication;
+    private final boolean legacyMetadataFiles;
+    private final String buildScanDataDir;
+    private final String buildScanDataCopyDir;
+    private final String buildScanMetadataDir;
+    private final String buildScanMetadataCopyDir;
 
-        instance.configuration.put(CONFIG_KEY_WORKFLOW_NAME, getEnvOrDefault(CONFIG_KEY_WORKFLOW_NAME, "unknown workflow name"));
-        instance.configuration.put(CONFIG_KEY_JOB_NAME, getEnvOrDefault(CONFIG_KEY_JOB_NAME, "unknown job name"));
-        instance.configuration.put(CONFIG_KEY_PR_NUMBER, getEnvOrDefault(CONFIG_KEY_PR_NUMBER, "0"));
-        instance.configuration.put(CONFIG_KEY_BUILD_ID, getEnv(CONFIG_KEY_BUILD_ID));
-        instance.configuration.put(CONFIG_KEY_CAPTURE_STRATEGY, getEnvOrDefault(CONFIG_KEY_CAPTURE_STRATEGY, CaptureStrategy.ALWAYS.name()));
-        instance.configuration.put(CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS, getEnvOrDefault(CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS, String.valueOf(true)));
-        instance.configuration.put(CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS, getEnvOrDefault(CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS, String.valueOf(true)));
-        instance.configuration.put(CONFIG_KEY_CAPTURE_CURRENT_ENABLED, getEnvOrDefault(CONFIG_KEY_CAPTURE_CURRENT_ENABLED, String.valueOf(false)));
-        instance.configuration.put(CONFIG_KEY_BUILD_SCAN_DATA_DIR, getEnv(CONFIG_KEY_BUILD_SCAN_DATA_DIR));
-        instance.configuration.put(CONFIG_KEY_BUILD_SCAN_DATA_COPY_DIR, getEnv(CONFIG_KEY_BUILD_SCAN_DATA_COPY_DIR));
-        instance.configuration.put(CONFIG_KEY_BUILD_SCAN_METADATA_DIR, getEnv(CONFIG_KEY_BUILD_SCAN_METADATA_DIR));
-        instance.configuration.put(CONFIG_KEY_BUILD_SCAN_METADATA_COPY_DIR, getEnv(CONFIG_KEY_BUILD_SCAN_METADATA_COPY_DIR));
-        instance.configuration.put(CONFIG_KEY_IS_BUILD_SCAN_REPUBLICATION, getEnvOrDefault(CONFIG_KEY_IS_BUILD_SCAN_REPUBLICATION, String.valueOf(false)));
+    private DefaultConfiguration(Map<String, String> env) {
+        workflowName = env.getOrDefault(CONFIG_KEY_WORKFLOW_NAME, "unknown workflow name");
+        jobName = env.getOrDefault(CONFIG_KEY_JOB_NAME, "unknown job name");
+        prNumber = env.getOrDefault(CONFIG_KEY_PR_NUMBER, "0");
+        buildId = env.get(CONFIG_KEY_BUILD_ID);
+        captureStrategy = parse(env, CONFIG_KEY_CAPTURE_STRATEGY, CaptureStrategy.ALWAYS, CaptureStrategy::valueOf);
+        captureCurrentEnabled = parse(env, CONFIG_KEY_CAPTURE_CURRENT_ENABLED, false, Boolean::parseBoolean);
+        captureOnSuccess = captureStrategy == CaptureStrategy.ALWAYS || (captureStrategy == CaptureStrategy.ON_DEMAND && captureCurrentEnabled);
+        captureOnFailure = captureStrategy != CaptureStrategy.ON_DEMAND || captureCurrentEnabled;
+        captureUnpublishedBuildScans = parse(env, CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS, true, Boolean::parseBoolean);
+        captureBuildScanLinks = parse(env, CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS, true, Boolean::parseBoolean);
+        captureMode = parse(env, CONFIG_KEY_CAPTURE_MODE, CaptureMode.MOVE, CaptureMode::valueOf);
+        captureCompressionLevel = parse(env, CONFIG_KEY_CAPTURE_COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION, DefaultConfiguration::parseCompressionLevel);
+        captureTimeout = Duration.ofSeconds(parse(env, CONFIG_KEY_CAPTURE_TIMEOUT, 60L, Long::parseLong));
+        captureEager = parse(env, CONFIG_KEY_CAPTURE_EAGER, false, Boolean::parseBoolean);
+        // Sizes are configured in megabytes, 0 disables the limit
+        captureMaxDumpSize = parse(env, CONFIG_KEY_CAPTURE_MAX_DUMP_SIZE, 0L, Long::parseLong) * MEGABYTE;
+        captureMinFreeSpace = parse(env, CONFIG_KEY_CAPTURE_MIN_FREE_SPACE, 0L, Long::parseLong) * MEGABYTE;
+        captureMaxJobSize = parse(env, CONFIG_KEY_CAPTURE_MAX_JOB_SIZE, 0L, Long::parseLong) * MEGABYTE;
+        // The retention age is configured in hours
+        retentionMaxAge = Duration.ofHours(parse(env, CONFIG_KEY_RETENTION_MAX_AGE, 0L, Long::parseLong));
+        retentionMaxCount = parse(env, CONFIG_KEY_RETENTION_MAX_COUNT, 0, Integer::parseInt);
+        retentionMaxSize = parse(env, CONFIG_KEY_RETENTION_MAX_SIZE, 0L, Long::parseLong) * MEGABYTE;
+        slowestExecutions = parse(env, CONFIG_KEY_SLOWEST_EXECUTIONS, 5, Integer::parseInt);
+        buildScanRepublication = parse(env, CONFIG_KEY_IS_BUILD_SCAN_REPUBLICATION, false, Boolean::parseBoolean);
+        legacyMetadataFiles = parse(env, CONFIG_KEY_LEGACY_METADATA_FILES, false, Boolean::parseBoolean);
+        buildScanDataDir = env.get(CONFIG_KEY_BUILD_SCAN_DATA_DIR);
+        buildScanDataCopyDir = env.get(CONFIG_KEY_BUILD_SCAN_DATA_COPY_DIR);
+        buildScanMetadataDir = env.get(CONFIG_KEY_BUILD_SCAN_METADATA_DIR);
+        buildScanMetadataCopyDir = env.get(CONFIG_KEY_BUILD_SCAN_METADATA_COPY_DIR);
+    }
 
-        return instance;
+    static DefaultConfiguration get() {
+        return from(System.getenv());
     }
 
-    private static String getEnvOrDefault(String key, String defaultValue) {
-        String value = getEnv(key);
-        return value != null ? value : defaultValue;
+    static DefaultConfiguration from(Map<String, String> env) {
+        return new DefaultConfiguration(env);
     }
 
-    private static String getEnv(String key) {
-        return System.getenv(key);
+    // An invalid value falls back to the default rather than failing every later callback of the build
+    private static <T> T parse(Map<String, String> env, String key, T defaultValue, Function<String, T> parser) {
+        String value = env.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid value " + value + " for " + key + ", using " + defaultValue);
+            return defaultValue;
+        }
     }
 
-    private CaptureStrategy getCaptureStrategy() {
-        return CaptureStrategy.valueOf(configuration.get(CONFIG_KEY_CAPTURE_STRATEGY));
+    // Deflater only accepts levels from 0 to 9, or -1 for its default level
+    private static int parseCompressionLevel(String value) {
+        int level = Integer.parseInt(value);
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level out of range: " + level);
+        }
+        return level;
     }
 
     public String getWorkflowName() {
-        return configuration.get(CONFIG_KEY_WORKFLOW_NAME);
+        return workflowName;
     }
 
     public String getJobName() {
-        return configuration.get(CONFIG_KEY_JOB_NAME);
+        return jobName;
     }
 
     public String getPrNumber() {
-        return configuration.get(CONFIG_KEY_PR_NUMBER);
+        return prNumber;
     }
 
     public String getBuildId() {
-        return configuration.get(CONFIG_KEY_BUILD_ID);
+        return buildId;
+    }
+
+    public boolean isCaptureEnabled() {
+        return (captureUnpublishedBuildScans || captureBuildScanLinks) && (captureOnSuccess || captureOnFailure);
     }
 
     public boolean isCaptureUnpublishedBuildScans(boolean isBuildFailure) {
-        return Boolean.parseBoolean(configuration.get(CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS)) && isCaptureRequired(isBuildFailure);
+        return captureUnpublishedBuildScans && isCaptureRequired(isBuildFailure);
     }
 
     public boolean isCaptureBuildScanLinks(boolean isBuildFailure) {
-        return Boolean.parseBoolean(configuration.get(CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS)) && isCaptureRequired(isBuildFailure);
+        return captureBuildScanLinks && isCaptureRequired(isBuildFailure);
     }
 
     private boolean isCaptureRequired(boolean isBuildFailure) {
-        return getCaptureStrategy().equals(CaptureStrategy.ALWAYS)
-                || (isBuildFailure && getCaptureStrategy().equals(CaptureStrategy.ON_FAILURE))
-                || (Boolean.parseBoolean(configuration.get(CONFIG_KEY_CAPTURE_CURRENT_ENABLED)) && getCaptureStrategy().equals(CaptureStrategy.ON_DEMAND));
+        return isBuildFailure ? captureOnFailure : captureOnSuccess;
+    }
+
+    public CaptureMode getCaptureMode() {
+        return captureMode;
+    }
+
+    public int getCaptureCompressionLevel() {
+        return captureCompressionLevel;
+    }
+
+    public Duration getCaptureTimeout() {
+        return captureTimeout;
+    }
+
+    public boolean isCaptureEager() {
+        return captureEager;
+    }
+
+    public long getCaptureMaxDumpSize() {
+        return captureMaxDumpSize;
+    }
+
+    public long getCaptureMinFreeSpace() {
+        return captureMinFreeSpace;
+    }
+
+    public long getCaptureMaxJobSize() {
+        return captureMaxJobSize;
+    }
+
+    public Duration getRetentionMaxAge() {
+        return retentionMaxAge;
+    }
+
+    public int getRetentionMaxCount() {
+        return retentionMaxCount;
+    }
+
+    public long getRetentionMaxSize() {
+        return retentionMaxSize;
+    }
+
+    public int getSlowestExecutions() {
+        return slowestExecutions;
     }
 
     public boolean isBuildScanRepublication() {
-        return Boolean.parseBoolean(configuration.get(CONFIG_KEY_IS_BUILD_SCAN_REPUBLICATION));
+        return buildScanRepublication;
+    }
+
+    public boolean isLegacyMetadataFiles() {
+        return legacyMetadataFiles;
     }
 
     public String getBuildScanDataDir() {
-        return configuration.get(CONFIG_KEY_BUILD_SCAN_DATA_DIR);
+        return buildScanDataDir;
     }
 
     public String getBuildScanDataCopyDir() {
-        return configuration.get(CONFIG_KEY_BUILD_SCAN_DATA_COPY_DIR);
+        return buildScanDataCopyDir;
     }
 
     public String getBuildScanMetadataDir() {
-        return configuration.get(CONFIG_KEY_BUILD_SCAN_METADATA_DIR);
+        return buildScanMetadataDir;
     }
 
     public String getBuildScanMetadataCopyDir() {
-        return configuration.get(CONFIG_KEY_BUILD_SCAN_METADATA_COPY_DIR);
+        return buildScanMetadataCopyDir;
     }
 
     @Override
     public String toString() {
         return "Configuration{" +
-                "configuration=" + configuration +
+                "workflowName=" + workflowName +
+                ", jobName=" + jobName +
+                ", prNumber=" + prNumber +
+                ", buildId=" + buildId +
+                ", captureStrategy=" + captureStrategy +
+                ", captureCurrentEnabled=" + captureCurrentEnabled +
+                ", captureUnpublishedBuildScans=" + captureUnpublishedBuildScans +
+                ", captureBuildScanLinks=" + captureBuildScanLinks +
+                ", captureMode=" + captureMode +
+                ", captureCompressionLevel=" + captureCompressionLevel +
+                ", captureTimeout=" + captureTimeout +
+                ", captureEager=" + captureEager +
+                ", captureMaxDumpSize=" + captureMaxDumpSize +
+                ", captureMinFreeSpace=" + captureMinFreeSpace +
+                ", captureMaxJobSize=" + captureMaxJobSize +
+                ", retentionMaxAge=" + retentionMaxAge +
+                ", retentionMaxCount=" + retentionMaxCount +
+                ", retentionMaxSize=" + retentionMaxSize +
+                ", slowestExecutions=" + slowestExecutions +
+                ", buildScanRepublication=" + buildScanRepublication +
+                ", legacyMetadataFiles=" + legacyMetadataFiles +
+                ", buildScanDataDir=" + buildScanDataDir +
+                ", buildScanDataCopyDir=" + buildScanDataCopyDir +
+                ", buildScanMetadataDir=" + buildScanMetadataDir +
+                ", buildScanMetadataCopyDir=" + buildScanMetadataCopyDir +
                 '}';
     }
 }
@@ -1,43 +1,345 @@
 package com.gradle;
 
-import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.function.BiPredicate;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Checksum;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 class DefaultFileManager implements FileManager {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileManager.class);
+
+    private static final ConcurrentMap<Path, Object> APPEND_MONITORS = new ConcurrentHashMap<>();
+    private static final Set<Path> EXCLUSIVE_LOCKS = ConcurrentHashMap.newKeySet();
+
+    // Returns null when the file doesn't exist
+    @Override
+    public String readContent(File file) throws IOException {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Appends are serialized with a monitor per file within this JVM and a file lock across JVMs,
+    // the file lock alone throws OverlappingFileLockException when it is already held by this JVM
     @Override
     public void writeContent(File file, String content) throws IOException {
-        Files.createDirectories(file.toPath().getParent());
-        Files.write(file.toPath(), content.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(path.getParent());
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        synchronized (APPEND_MONITORS.computeIfAbsent(path, p -> new Object())) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                FileLock lock = channel.lock();
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    // The content is written to a temporary file in the target directory, then renamed over the target
+    // so readers see either the previous or the new content, never a partial file
+    @Override
+    public void writeContentAtomically(File file, String content) throws IOException {
+        Path target = file.toPath();
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path tempFile = Files.createTempFile(target.toAbsolutePath().getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
     }
 
     @Override
-    public void copyDirectory(File source, File target) throws IOException {
-        FileUtils.copyDirectory(source, target);
+    public void copyDirectory(File source, File target, IntegrityManifest manifest) throws IOException {
+        DirectoryCopier.copyDirectory(source.toPath(), target.toPath(), manifest);
     }
 
     @Override
     public void copyFile(File source, File target) throws IOException {
-        FileUtils.copyFile(source, target);
+        Files.createDirectories(target.toPath().toAbsolutePath().getParent());
+        DirectoryCopier.copyFile(source.toPath(), target.toPath(), Files.readAttributes(source.toPath(), BasicFileAttributes.class));
     }
 
     @Override
     public void deleteDirectory(File buildScanDirectory) throws IOException {
-        FileUtils.deleteDirectory(buildScanDirectory);
+        Path root = buildScanDirectory.toPath();
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public void deleteFile(File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Override
+    public void moveAtomically(File source, File target) throws IOException {
+        Files.createDirectories(target.toPath().getParent());
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Moved or linked files are never read, the manifest records their sizes only, checksums are computed by copies
+    @Override
+    public DirectoryTransfer moveDirectory(File source, File target, IntegrityManifest manifest) throws IOException {
+        Files.createDirectories(target.toPath().getParent());
+
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return new DirectoryTransfer(DirectoryTransfer.Mode.MOVE, sizeOfDirectory(target.toPath(), manifest));
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug("Could not move " + source + " atomically: " + e);
+        }
+
+        try {
+            long linkedBytes = linkDirectory(source.toPath(), target.toPath(), manifest);
+            deleteDirectory(source);
+            return new DirectoryTransfer(DirectoryTransfer.Mode.HARD_LINK, linkedBytes);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug("Could not hard link " + source + ": " + e);
+        }
+
+        copyDirectory(source, target, manifest);
+        deleteDirectory(source);
+        return new DirectoryTransfer(DirectoryTransfer.Mode.COPY, 0);
+    }
+
+    // Links are removed on failure, copying over a link would otherwise truncate the source file
+    private static long linkDirectory(Path source, Path target, IntegrityManifest manifest) throws IOException {
+        List<Path> links = new ArrayList<>();
+        long[] linkedBytes = {0};
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    links.add(Files.createLink(target.resolve(source.relativize(file)), file));
+                    linkedBytes[0] += attrs.size();
+                    if (manifest != null) {
+                        manifest.add(source.relativize(file).toString(), attrs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | UnsupportedOperationException e) {
+            for (Path link : links) {
+                Files.deleteIfExists(link);
+            }
+            throw e;
+        }
+        return linkedBytes[0];
+    }
+
+    @Override
+    public DirectoryTransfer storeDirectory(File source, File baseDir, File objectsDir, File manifest, IntegrityManifest integrityManifest) throws IOException {
+        long deduplicatedBytes = ContentStore.store(source.toPath(), baseDir.toPath(), objectsDir.toPath(), manifest.toPath(), integrityManifest);
+        return new DirectoryTransfer(DirectoryTransfer.Mode.DEDUPLICATE, deduplicatedBytes);
+    }
+
+    // Files are streamed into the archive with entry names relative to baseDir, the manifest checksums are computed in the same read
+    @Override
+    public long archiveDirectory(File source, File baseDir, File archive, int compressionLevel, IntegrityManifest manifest) throws IOException {
+        Files.createDirectories(archive.toPath().getParent());
+        Path basePath = baseDir.toPath();
+        long[] archivedBytes = {0};
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive.toPath())))) {
+            zipOutputStream.setLevel(compressionLevel);
+            Files.walkFileTree(source.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    ZipEntry entry = new ZipEntry(basePath.relativize(file).toString().replace(File.separatorChar, '/'));
+                    entry.setLastModifiedTime(attrs.lastModifiedTime());
+                    zipOutputStream.putNextEntry(entry);
+                    Checksum checksum = manifest != null ? IntegrityManifest.newChecksum() : null;
+                    long size = 0;
+                    try (InputStream inputStream = Files.newInputStream(file)) {
+                        int read;
+                        while ((read = inputStream.read(buffer)) != -1) {
+                            zipOutputStream.write(buffer, 0, read);
+                            if (checksum != null) {
+                                checksum.update(buffer, 0, read);
+                            }
+                            size += read;
+                        }
+                    }
+                    zipOutputStream.closeEntry();
+                    archivedBytes[0] += size;
+                    if (manifest != null) {
+                        manifest.add(source.toPath().relativize(file).toString(), size, checksum.getValue());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return archivedBytes[0];
+    }
+
+    @Override
+    public long sizeOfDirectory(File directory) throws IOException {
+        return sizeOfDirectory(directory.toPath(), null);
+    }
+
+    private static long sizeOfDirectory(Path directory, IntegrityManifest manifest) throws IOException {
+        long[] size = {0};
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                if (manifest != null && attrs.isRegularFile()) {
+                    manifest.add(directory.relativize(file).toString(), attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size[0];
+    }
+
+    @Override
+    public long getLastModified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath(), LinkOption.NOFOLLOW_LINKS).toMillis();
+    }
+
+    // The directory may not exist yet, the space is read from its closest existing ancestor
+    @Override
+    public long getUsableSpace(File directory) throws IOException {
+        Path path = directory.toPath().toAbsolutePath();
+        while (path != null && !Files.exists(path)) {
+            path = path.getParent();
+        }
+        if (path == null) {
+            throw new IOException("No existing ancestor for " + directory);
+        }
+        return Files.getFileStore(path).getUsableSpace();
+    }
+
+    // The counter is updated under the same locks as appends, returns false without updating it when the limit would be exceeded
+    @Override
+    public boolean addToCounter(File counter, long delta, long limit) throws IOException {
+        Path path = counter.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(path.getParent());
+        synchronized (APPEND_MONITORS.computeIfAbsent(path, p -> new Object())) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        // read the whole counter
+                    }
+                    String current = new String(buffer.array(), StandardCharsets.UTF_8).trim();
+                    long value = Math.max(0, (current.isEmpty() ? 0 : Long.parseLong(current)) + delta);
+                    if (limit > 0 && delta > 0 && value > limit) {
+                        return false;
+                    }
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(String.valueOf(value).getBytes(StandardCharsets.UTF_8)), 0);
+                    channel.force(false);
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    // The file lock excludes other JVMs and the set other threads of this JVM, e.g. concurrent Maven Daemon sessions
+    // Returns null when the lock is already held, it is released on close or when the JVM exits
+    @Override
+    public Closeable lockExclusively(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(path.getParent());
+        if (!EXCLUSIVE_LOCKS.add(path)) {
+            return null;
+        }
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.tryLock() == null) {
+                channel.close();
+                EXCLUSIVE_LOCKS.remove(path);
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            EXCLUSIVE_LOCKS.remove(path);
+            throw e;
+        }
+        FileChannel lockedChannel = channel;
+        return () -> {
+            try {
+                lockedChannel.close();
+            } finally {
+                EXCLUSIVE_LOCKS.remove(path);
+            }
+        };
     }
 
     @Override
-    public Stream<Path> find(File start,
-                             int maxDepth,
-                             BiPredicate<Path, BasicFileAttributes> matcher) throws IOException {
-        return Files.find(start.toPath(), maxDepth, matcher);
+    public List<Path> findScanDumps(File buildScanDataDir) throws IOException {
+        return ScanDumpLocator.find(buildScanDataDir);
     }
 }
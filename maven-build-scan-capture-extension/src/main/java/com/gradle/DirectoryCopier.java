@@ -0,0 +1,154 @@
+package com.gradle;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+// Copies a directory tree walking it once: directories are created by the walking thread while files are copied
+// concurrently on a pool shared by every copy, so parallel captures don't multiply the I/O concurrency
+// Timestamps of files and directories are preserved
+final class DirectoryCopier {
+
+    // Build Scan data is mostly small files on SSD backed runners, where a few concurrent copies hide the per-file latency
+    static final int COPY_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    // Above this size the copy is delegated to the kernel with FileChannel.transferTo
+    static final long TRANSFER_THRESHOLD = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadPoolExecutor COPY_EXECUTOR = newCopyExecutor();
+
+    private DirectoryCopier() {}
+
+    // Returns the number of bytes copied, files are added to the manifest when one is given
+    static long copyDirectory(Path source, Path target, IntegrityManifest manifest) throws IOException {
+        List<Future<Long>> copies = new ArrayList<>();
+        List<Path[]> directories = new ArrayList<>();
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Path targetDir = target.resolve(source.relativize(dir).toString());
+                    Files.createDirectories(targetDir);
+                    directories.add(new Path[]{dir, targetDir});
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String relativePath = source.relativize(file).toString();
+                    Path targetFile = target.resolve(relativePath);
+                    if (manifest != null && attrs.isRegularFile()) {
+                        copies.add(COPY_EXECUTOR.submit(() -> copyFileWithChecksum(file, targetFile, attrs, manifest, relativePath)));
+                    } else {
+                        copies.add(COPY_EXECUTOR.submit(() -> copyFile(file, targetFile, attrs)));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            long copiedBytes = 0;
+            for (Future<Long> copy : copies) {
+                copiedBytes += copy.get();
+            }
+
+            // copying files updates the directory timestamps, they are restored once every file is in place
+            for (int i = directories.size() - 1; i >= 0; i--) {
+                Path[] directory = directories.get(i);
+                Files.setLastModifiedTime(directory[1], Files.getLastModifiedTime(directory[0]));
+            }
+            return copiedBytes;
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while copying " + source);
+        } finally {
+            for (Future<Long> copy : copies) {
+                copy.cancel(true);
+            }
+        }
+    }
+
+    // The target is replaced, never written through, as it may be a hard link to the source
+    static long copyFile(Path source, Path target, BasicFileAttributes attrs) throws IOException {
+        if (attrs.size() < TRANSFER_THRESHOLD || !attrs.isRegularFile()) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            return attrs.size();
+        }
+
+        Files.deleteIfExists(target);
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = sourceChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += sourceChannel.transferTo(position, size - position, targetChannel);
+            }
+        }
+        Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+        return attrs.size();
+    }
+
+    // The checksum needs the content in user space, so the copy goes through a buffer instead of transferTo
+    private static long copyFileWithChecksum(Path source, Path target, BasicFileAttributes attrs, IntegrityManifest manifest, String relativePath) throws IOException {
+        Files.deleteIfExists(target);
+        Checksum checksum = IntegrityManifest.newChecksum();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long size = 0;
+        try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            // ByteBuffer overrides flip and clear from Java 9, called through Buffer they also link on a Java 8 runtime
+            while ((read = sourceChannel.read(buffer)) != -1) {
+                checksum.update(buffer.array(), 0, read);
+                size += read;
+                ((Buffer) buffer).flip();
+                while (buffer.hasRemaining()) {
+                    targetChannel.write(buffer);
+                }
+                ((Buffer) buffer).clear();
+            }
+        }
+        Files.setLastModifiedTime(target, attrs.lastModifiedTime());
+        manifest.add(relativePath, size, checksum.getValue());
+        return size;
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private static ThreadPoolExecutor newCopyExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(COPY_THREADS, COPY_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "build-scan-copy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
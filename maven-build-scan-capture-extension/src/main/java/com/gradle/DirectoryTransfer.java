@@ -0,0 +1,33 @@
+package com.gradle;
+
+final class DirectoryTransfer {
+
+    enum Mode {
+        MOVE, HARD_LINK, COPY, DEDUPLICATE
+    }
+
+    private final Mode mode;
+    private final long bytesAvoided;
+
+    DirectoryTransfer(Mode mode, long bytesAvoided) {
+        this.mode = mode;
+        this.bytesAvoided = bytesAvoided;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    // Bytes which did not have to be read and written thanks to the transfer mode
+    long getBytesAvoided() {
+        return bytesAvoided;
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryTransfer{" +
+                "mode=" + mode +
+                ", bytesAvoided=" + bytesAvoided +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+package com.gradle;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Measures the wall time of each module and mojo execution of the reactor, then forwards the event to the previous listener
+// A module and its mojos run on a single builder thread, start times are kept per thread so the hot path doesn't allocate,
+// names are only built for executions entering the slowest ones
+class ExecutionTimingListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+    private final SlowestEntries slowestModules;
+    private final SlowestEntries slowestMojos;
+    private final ThreadLocal<ThreadTimes> threadTimes = ThreadLocal.withInitial(ThreadTimes::new);
+    private final LongAdder mojoExecutions = new LongAdder();
+
+    ExecutionTimingListener(ExecutionListener delegate, int slowestCount) {
+        this.delegate = delegate;
+        this.slowestModules = new SlowestEntries(slowestCount);
+        this.slowestMojos = new SlowestEntries(slowestCount);
+    }
+
+    // <artifactId>=<millis>, slowest first
+    String getSlowestModules() {
+        return slowestModules.toString();
+    }
+
+    // <artifactId>:<plugin>:<goal> (<executionId>)=<millis>, slowest first
+    String getSlowestMojos() {
+        return slowestMojos.toString();
+    }
+
+    long getMojoExecutions() {
+        return mojoExecutions.sum();
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        threadTimes.get().projectStart = System.nanoTime();
+        if (delegate != null) {
+            delegate.projectStarted(event);
+        }
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        projectFinished(event);
+        if (delegate != null) {
+            delegate.projectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        projectFinished(event);
+        if (delegate != null) {
+            delegate.projectFailed(event);
+        }
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        threadTimes.get().pushMojoStart(System.nanoTime());
+        if (delegate != null) {
+            delegate.mojoStarted(event);
+        }
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        mojoFinished(event);
+        if (delegate != null) {
+            delegate.mojoSucceeded(event);
+        }
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        mojoFinished(event);
+        if (delegate != null) {
+            delegate.mojoFailed(event);
+        }
+    }
+
+    private void projectFinished(ExecutionEvent event) {
+        ThreadTimes times = threadTimes.get();
+        if (times.projectStart != 0 && event.getProject() != null) {
+            long duration = System.nanoTime() - times.projectStart;
+            if (slowestModules.admits(duration)) {
+                slowestModules.add(event.getProject().getArtifactId(), duration);
+            }
+        }
+        times.projectStart = 0;
+    }
+
+    private void mojoFinished(ExecutionEvent event) {
+        long start = threadTimes.get().popMojoStart();
+        mojoExecutions.increment();
+        MojoExecution mojoExecution = event.getMojoExecution();
+        if (start != 0 && mojoExecution != null) {
+            long duration = System.nanoTime() - start;
+            if (slowestMojos.admits(duration)) {
+                String project = event.getProject() != null ? event.getProject().getArtifactId() : "unknown";
+                slowestMojos.add(project + ":" + mojoExecution.getArtifactId() + ":" + mojoExecution.getGoal() + " (" + mojoExecution.getExecutionId() + ")", duration);
+            }
+        }
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectDiscoveryStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionEnded(event);
+        }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSkipped(event);
+        }
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSkipped(event);
+        }
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkStarted(event);
+        }
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkFailed(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectStarted(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectFailed(event);
+        }
+    }
+
+    private static final class ThreadTimes {
+
+        private long projectStart;
+        // mojos nest when a mojo forks a lifecycle
+        private long[] mojoStarts = new long[4];
+        private int mojoDepth;
+
+        private void pushMojoStart(long start) {
+            if (mojoDepth == mojoStarts.length) {
+                mojoStarts = Arrays.copyOf(mojoStarts, mojoDepth * 2);
+            }
+            mojoStarts[mojoDepth++] = start;
+        }
+
+        private long popMojoStart() {
+            return mojoDepth > 0 ? mojoStarts[--mojoDepth] : 0;
+        }
+    }
+}
@@ -1,22 +1,45 @@
 package com.gradle;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.function.BiPredicate;
-import java.util.stream.Stream;
+import java.util.List;
 
 interface FileManager {
 
+    String readContent(File file) throws IOException;
+
     void writeContent(File file, String content) throws IOException;
 
-    void copyDirectory(File buildScanDirectory, File destinationDirectory) throws IOException;
+    void writeContentAtomically(File file, String content) throws IOException;
+
+    void copyDirectory(File buildScanDirectory, File destinationDirectory, IntegrityManifest manifest) throws IOException;
 
     void copyFile(File source, File target) throws IOException;
 
     void deleteDirectory(File buildScanDirectory) throws IOException;
 
-    Stream<Path> find(File start, int maxDepth, BiPredicate<Path, BasicFileAttributes> matcher) throws IOException;
+    void deleteFile(File file) throws IOException;
+
+    void moveAtomically(File source, File target) throws IOException;
+
+    DirectoryTransfer moveDirectory(File source, File target, IntegrityManifest manifest) throws IOException;
+
+    DirectoryTransfer storeDirectory(File source, File baseDir, File objectsDir, File manifest, IntegrityManifest integrityManifest) throws IOException;
+
+    long archiveDirectory(File source, File baseDir, File archive, int compressionLevel, IntegrityManifest manifest) throws IOException;
+
+    long sizeOfDirectory(File directory) throws IOException;
+
+    long getLastModified(File file) throws IOException;
+
+    long getUsableSpace(File directory) throws IOException;
+
+    boolean addToCounter(File counter, long delta, long limit) throws IOException;
+
+    Closeable lockExclusively(File file) throws IOException;
+
+    List<Path> findScanDumps(File buildScanDataDir) throws IOException;
 
 }
@@ -0,0 +1,86 @@
+package com.gradle;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+// Sizes and checksums of the files of a scan dump, computed while the files are captured
+// #algorithm=<CRC32C|CRC32>
+// #dump=<scan dump path relative to build-scan-data>
+// <checksum as 8 hex digits, - when the file was not read> <size> <path relative to the scan dump>
+final class IntegrityManifest {
+
+    static final String EXTENSION = ".integrity";
+
+    // CRC32C is hardware accelerated but only available from Java 9
+    private static final Constructor<? extends Checksum> CRC32C = findCrc32c();
+    private static final long NO_CHECKSUM = -1;
+
+    private final String dumpPath;
+    private final Map<String, long[]> entries = new ConcurrentSkipListMap<>();
+
+    IntegrityManifest(String dumpPath) {
+        this.dumpPath = dumpPath.replace('\\', '/');
+    }
+
+    static String getAlgorithm() {
+        return CRC32C != null ? "CRC32C" : "CRC32";
+    }
+
+    static Checksum newChecksum() {
+        if (CRC32C != null) {
+            try {
+                return CRC32C.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return new CRC32();
+    }
+
+    // Called concurrently by the copy threads
+    void add(String relativePath, long size, long checksum) {
+        entries.put(relativePath.replace('\\', '/'), new long[]{size, checksum});
+    }
+
+    // Moved or linked files are not read, only their size is recorded
+    void add(String relativePath, long size) {
+        add(relativePath, size, NO_CHECKSUM);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getTotalBytes() {
+        long totalBytes = 0;
+        for (long[] entry : entries.values()) {
+            totalBytes += entry[0];
+        }
+        return totalBytes;
+    }
+
+    String toContent() {
+        StringBuilder content = new StringBuilder()
+                .append("#algorithm=").append(getAlgorithm()).append('\n')
+                .append("#dump=").append(dumpPath).append('\n');
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            long checksum = entry.getValue()[1];
+            content.append(checksum != NO_CHECKSUM ? String.format("%08x", checksum) : "-").append(' ')
+                    .append(entry.getValue()[0]).append(' ')
+                    .append(entry.getKey()).append('\n');
+        }
+        return content.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends Checksum> findCrc32c() {
+        try {
+            return (Constructor<? extends Checksum>) Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.gradle;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Resource profile of the Maven JVM from the configuration of the extension to the end of the build, read from the platform MXBeans
+// Nothing is polled: the heap peak is the heap used before each collection, reported by the collectors' notifications,
+// the other values are deltas of counters the JVM maintains, and the thread peak is tracked by the JVM
+// The daemon JVM runs builds concurrently, its profile is the one of the JVM during the build
+class JvmResourceProfile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JvmResourceProfile.class);
+    private static final boolean COM_SUN_MANAGEMENT_AVAILABLE = isComSunManagementAvailable();
+
+    private final long startNanos = System.nanoTime();
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final long startCpuNanos;
+    private final AtomicLong heapPeak = new AtomicLong();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener gcListener;
+    private String summary;
+
+    private JvmResourceProfile() {
+        startGcCount = getGcCount();
+        startGcMillis = getGcMillis();
+        startCpuNanos = getProcessCpuNanos();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        gcListener = COM_SUN_MANAGEMENT_AVAILABLE ? new GcListener(getHeapPoolNames(), heapPeak) : null;
+    }
+
+    static JvmResourceProfile start() {
+        JvmResourceProfile profile = new JvmResourceProfile();
+        if (profile.gcListener != null) {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(profile.gcListener, null, null);
+                    profile.emitters.add((NotificationEmitter) collector);
+                }
+            }
+        }
+        return profile;
+    }
+
+    // heapPeakBytes=<n>, heapMaxBytes=<n>, gcCount=<n>, gcMillis=<n>, cpuMillis=<n>, wallMillis=<n>, threadPeak=<n>, processors=<n>
+    // cpuMillis is absent when the JVM doesn't expose the process CPU time
+    // The profile ends when first requested, the listeners are then removed as the daemon JVM outlives the build
+    synchronized String getSummary() {
+        if (summary == null) {
+            stop();
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            long cpuNanos = getProcessCpuNanos();
+            summary = "heapPeakBytes=" + Math.max(heapPeak.get(), heap.getUsed())
+                    + ", heapMaxBytes=" + heap.getMax()
+                    + ", gcCount=" + (getGcCount() - startGcCount)
+                    + ", gcMillis=" + (getGcMillis() - startGcMillis)
+                    + (cpuNanos >= 0 && startCpuNanos >= 0 ? ", cpuMillis=" + TimeUnit.NANOSECONDS.toMillis(cpuNanos - startCpuNanos) : "")
+                    + ", wallMillis=" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+                    + ", threadPeak=" + ManagementFactory.getThreadMXBean().getPeakThreadCount()
+                    + ", processors=" + Runtime.getRuntime().availableProcessors();
+        }
+        return summary;
+    }
+
+    private void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                LOGGER.debug("Garbage collection listener already removed", e);
+            }
+        }
+        emitters.clear();
+    }
+
+    // Collectors report -1 when the value is undefined
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    // -1 when not available
+    private static long getProcessCpuNanos() {
+        OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        if (COM_SUN_MANAGEMENT_AVAILABLE && operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) operatingSystem).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static Set<String> getHeapPoolNames() {
+        Set<String> names = new HashSet<>();
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(pool -> names.add(pool.getName()));
+        return names;
+    }
+
+    // GC notifications and the process CPU time are HotSpot and OpenJ9 extensions of the platform MXBeans
+    private static boolean isComSunManagementAvailable() {
+        try {
+            Class.forName("com.sun.management.GarbageCollectionNotificationInfo", false, JvmResourceProfile.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // The heap only grows between collections, its peak is the heap used before the collection which reclaimed it
+    private static final class GcListener implements NotificationListener {
+
+        private final Set<String> heapPoolNames;
+        private final AtomicLong heapPeak;
+
+        private GcListener(Set<String> heapPoolNames, AtomicLong heapPeak) {
+            this.heapPoolNames = heapPoolNames;
+            this.heapPeak = heapPeak;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet()) {
+                if (heapPoolNames.contains(pool.getKey())) {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            heapPeak.accumulateAndGet(used, Math::max);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.gradle.develocity.agent.maven.api.DevelocityApi;
 import com.gradle.develocity.agent.maven.api.DevelocityListener;
 import com.gradle.develocity.agent.maven.api.scan.PublishedBuildScan;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.rtinfo.internal.DefaultRuntimeInformation;
 import org.codehaus.plexus.component.annotations.Component;
 import org.slf4j.Logger;
@@ -12,14 +13,21 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Stream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @SuppressWarnings("unused")
 @Component(
@@ -30,10 +38,26 @@ import java.util.stream.Stream;
 public final class MavenBuildScanCaptureListener implements DevelocityListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MavenBuildScanCaptureListener.class);
-    private static final String SCAN_DUMP_REGEX = ".*/build-scan-data/.*/previous/.*/scan.scan";
+    private static final String CAPTURE_SKIPPED_TIMEOUT = "timeout";
+    private static final String MVND_HOME_PROPERTY = "mvnd.home";
+    private static final int MAX_CAPTURE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final ThreadFactory CAPTURE_THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable, "build-scan-capture");
+        thread.setDaemon(true);
+        return thread;
+    };
     private BuildState buildState = new BuildState();
     private Configuration configuration = DefaultConfiguration.get();
     private FileManager fileManager = new DefaultFileManager();
+    private Supplier<Configuration> sessionConfigurations = DefaultConfiguration::get;
+    private final CaptureMetrics captureMetrics = new CaptureMetrics();
+    private ExecutionTimingListener executionTimings;
+    private ScanDumpWatcher scanDumpWatcher;
+    private ScanDumpClaims scanDumpClaims;
+    private BuildCacheStats buildCacheStats;
+    private TransferStatsListener transferStats;
+    private TestReportSummary testReports;
+    private JvmResourceProfile jvmProfile;
 
     public void setBuildState(BuildState buildState) {
         this.buildState = buildState;
@@ -47,17 +71,98 @@ public final class MavenBuildScanCaptureListener implements DevelocityListener {
         this.fileManager = fileManager;
     }
 
+    // The daemon reads the configuration of each build from this supplier, the listener itself is a singleton of the daemon
+    void setSessionConfigurations(Supplier<Configuration> sessionConfigurations) {
+        this.sessionConfigurations = sessionConfigurations;
+    }
+
     @Override
     public void configure(DevelocityApi develocityApi, MavenSession session) {
+        // The daemon JVM outlives the build and may run concurrent builds, each session gets its own state
+        // and is captured when it ends, the configuration is read again as each build has its own environment
+        MavenBuildScanCaptureListener listener = this;
+        if (isDaemon()) {
+            listener = new MavenBuildScanCaptureListener();
+            listener.setConfiguration(sessionConfigurations.get());
+            listener.setFileManager(fileManager);
+        }
+
+        // Nothing is registered when neither capture nor retention applies to the build, e.g. ON_DEMAND without CAPTURE_BUILD_SCAN
+        // Without capture, stale scan dumps are still evicted so they don't pile up on persistent runners
+        Runnable capture;
+        if (listener.configuration.isCaptureEnabled()) {
+            listener.configureSession(develocityApi, session);
+            capture = listener::captureBuildScanMetadata;
+        } else if (ScanDumpRetention.isEnabled(listener.configuration)) {
+            LOGGER.debug("Build scan capture disabled, evicting stale scan dumps only");
+            listener.buildState.setBuildTimestamp(String.valueOf(System.currentTimeMillis()));
+            capture = listener::evictStaleScanDumps;
+        } else {
+            LOGGER.debug("Build scan capture disabled");
+            return;
+        }
+
+        if (isDaemon()) {
+            SessionCaptures.register(session, capture);
+        } else {
+            // Capture build scan metadata with a shutdown hook
+            // The develocityApi.getBuildScan().buildFinished callback is called too early to collect the previous build scan
+            Runtime.getRuntime().addShutdownHook(new Thread(capture));
+        }
+    }
+
+    private static boolean isDaemon() {
+        return System.getProperty(MVND_HOME_PROPERTY) != null;
+    }
+
+    private void configureSession(DevelocityApi develocityApi, MavenSession session) {
         LOGGER.info("Configuring extension: " + getClass().getSimpleName());
         LOGGER.debug(configuration.toString());
 
-        // Set Maven data
-        buildState.setBuildId(UUID.randomUUID().toString());
+        // Profile the JVM until the build scan metadata is collected
+        try {
+            jvmProfile = JvmResourceProfile.start();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not profile the JVM", e);
+        }
+
+        // Set Maven data, the build id and the Maven version are resolved when first needed
         buildState.setBuildTimestamp(String.valueOf(System.currentTimeMillis()));
-        buildState.setMavenVersion(getMavenVersion());
         buildState.setArtifactId(session.getCurrentProject().getArtifactId());
-        buildState.setMavenGoals(String.join(" ", session.getRequest().getGoals()));
+        buildState.setMavenGoals(session.getRequest().getGoals());
+
+        // Time modules and mojos, Maven reads the execution listener from the request on each event
+        if (configuration.getSlowestExecutions() > 0) {
+            executionTimings = new ExecutionTimingListener(session.getRequest().getExecutionListener(), configuration.getSlowestExecutions());
+            session.getRequest().setExecutionListener(executionTimings);
+        }
+
+        // Downloads are observed since the session started, see SessionEndCaptureParticipant
+        if (session.getRepositorySession() != null && session.getRepositorySession().getTransferListener() instanceof TransferStatsListener) {
+            transferStats = (TransferStatsListener) session.getRepositorySession().getTransferListener();
+        }
+
+        // Test reports are read when the build scan metadata is collected, by then every module has written them
+        List<Path> buildDirs = new ArrayList<>();
+        for (MavenProject project : session.getProjects()) {
+            if (project.getBuild() != null && project.getBuild().getDirectory() != null) {
+                buildDirs.add(Paths.get(project.getBuild().getDirectory()));
+            }
+        }
+        Duration testReportsTimeout = configuration.getCaptureTimeout().compareTo(TestReportSummary.MAX_PARSE_TIME) < 0 ? configuration.getCaptureTimeout() : TestReportSummary.MAX_PARSE_TIME;
+        testReports = new TestReportSummary(buildDirs, getBuildStartMillis(), configuration.getSlowestExecutions(), testReportsTimeout, captureMetrics);
+
+        // Observe the local build cache, the scan of a build which was not published is the only other record of it
+        try {
+            buildCacheStats = BuildCacheStats.start(develocityApi.getBuildCache(), develocityApi.getStorageDirectory());
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not observe the build cache", e);
+        }
+
+        // Capture scan dumps as they are written, a move is a single rename and gains nothing from it
+        if (configuration.isCaptureEager() && configuration.getCaptureMode() != Configuration.CaptureMode.MOVE) {
+            startScanDumpWatcher();
+        }
 
         // Capture build result
         develocityApi.getBuildScan().buildFinished(buildResult -> {
@@ -69,13 +174,32 @@ public final class MavenBuildScanCaptureListener implements DevelocityListener {
 
         // Capture build scan link
         develocityApi.getBuildScan().buildScanPublished(this::captureBuildScanLink);
+    }
 
-        // Capture build scan metadata with a shutdown hook
-        // The develocityApi.getBuildScan().buildFinished callback is called too early to collect the previous build scan
-        Runtime.getRuntime().addShutdownHook(new Thread(this::captureBuildScanMetadata));
+    void startScanDumpWatcher() {
+        try {
+            scanDumpWatcher = new ScanDumpWatcher(configuration, fileManager, captureMetrics, new CapturePolicy(configuration, fileManager), getScanDumpClaims(), new File(configuration.getBuildScanDataDir()).toPath());
+            scanDumpWatcher.start();
+        } catch (IOException e) {
+            LOGGER.warn("Could not watch build scan data, unpublished build scans are captured at the end of the build", e);
+        }
+    }
+
+    private ScanDumpClaims getScanDumpClaims() {
+        if (scanDumpClaims == null) {
+            scanDumpClaims = new ScanDumpClaims(configuration, fileManager);
+        }
+        return scanDumpClaims;
     }
 
     private String getMavenVersion() {
+        if (buildState.getMavenVersion() == null) {
+            buildState.setMavenVersion(fetchMavenVersion());
+        }
+        return buildState.getMavenVersion();
+    }
+
+    private String fetchMavenVersion() {
         try {
             // trying to fetch Maven version from internal class
             Class<?> rtInfoClass = Class.forName("org.apache.maven.rtinfo.internal.DefaultRuntimeInformation", true, MavenBuildScanCaptureListener.class.getClassLoader());
@@ -104,8 +228,11 @@ public final class MavenBuildScanCaptureListener implements DevelocityListener {
         try {
             String githubOutput = System.getenv("GITHUB_OUTPUT");
             if (githubOutput != null) {
+                // GITHUB_OUTPUT is shared by every Maven invocation of the step
                 String content = key + "=" + value + "\n";
-                Files.write(Paths.get(githubOutput), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+                CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.GITHUB_OUTPUT);
+                fileManager.writeContent(new File(githubOutput), content);
+                timer.stop(content.length(), 1);
             }
         } catch (IOException e) {
             LOGGER.info("Unable to add " + key + " to GitHub output " + e.getMessage());
@@ -115,37 +242,45 @@ public final class MavenBuildScanCaptureListener implements DevelocityListener {
     void captureBuildScanMetadata() {
         if(configuration.isBuildScanRepublication()) {
             appendBuildScanLinkToMetadataFile();
+            saveCaptureMetrics(configuration.getBuildId());
         } else {
             saveBuildScanMetadata();
             captureUnpublishedBuildScan();
+            saveCaptureMetrics(buildState.getBuildId());
         }
     }
 
-    private void captureUnpublishedBuildScan() {
-      if(configuration.isCaptureUnpublishedBuildScans(buildState.isBuildFailure())) {
-          File buildScanDataDir = new File(configuration.getBuildScanDataDir());
-
-          try (Stream<Path> pathStream = fileManager.find(buildScanDataDir,
-                  Integer.MAX_VALUE,
-                  (filePath, fileAttr) -> filePath.toString().replace("\\","/").matches(SCAN_DUMP_REGEX) && fileAttr.isRegularFile())) {
-              Optional<Path> scanDumpPath = pathStream.findFirst();
-              if (scanDumpPath.isPresent()) {
-                  File currentMetadataFile = getMetadataFile(buildState.getBuildId());
-                  String buildId = scanDumpPath.get().getParent().getFileName().toString();
-
-                  LOGGER.info("Found unpublished build scan " + buildId);
-                  buildState.setBuildId(buildId);
+    private void saveCaptureMetrics(String buildId) {
+        try {
+            fileManager.writeContent(CaptureMetrics.getMetricsFile(configuration.getBuildScanMetadataDir(), configuration.getJobName()), captureMetrics.toRecord(buildId));
+        } catch (IOException e) {
+            LOGGER.debug("Could not save capture metrics", e);
+        }
+    }
 
-                  LOGGER.debug("Saving unpublished build scan data");
-                  File buildScanDataCopyDir = new File(configuration.getBuildScanDataCopyDir());
-                  fileManager.copyDirectory(buildScanDataDir, buildScanDataCopyDir);
+    private void captureUnpublishedBuildScan() {
+      Map<Path, ScanDumpCapture> eagerCaptures = new HashMap<>();
+      CapturePolicy capturePolicy = new CapturePolicy(configuration, fileManager);
+      if (scanDumpWatcher != null) {
+          eagerCaptures.putAll(scanDumpWatcher.stop());
+          capturePolicy = scanDumpWatcher.getCapturePolicy();
+      }
 
-                  LOGGER.debug("Saving unpublished build scan metadata");
-                  File buildScanMetadataCopyDir = new File(configuration.getBuildScanMetadataCopyDir());
-                  fileManager.copyFile(currentMetadataFile, getMetadataCopyFile(buildId));
+      // Stale scan dumps are evicted even when this build captures none, they would otherwise pile up on persistent runners
+      boolean captureEnabled = configuration.isCaptureUnpublishedBuildScans(buildState.isBuildFailure());
+      ScanDumpClaims claims = getScanDumpClaims();
+      ScanDumpRetention retention = new ScanDumpRetention(configuration, fileManager, captureMetrics, claims);
+      if(captureEnabled || retention.isEnabled()) {
+          File buildScanDataDir = new File(configuration.getBuildScanDataDir());
 
-                  LOGGER.debug("Delete build scan data");
-                  fileManager.deleteDirectory(buildScanDataDir);
+          try {
+              List<Path> scanDumpPaths = locateScanDumps(buildScanDataDir, retention);
+              if (!captureEnabled) {
+                  LOGGER.debug("Unpublished build scan capture disabled");
+              } else if (!scanDumpPaths.isEmpty()) {
+                  // Bound the time spent in the shutdown hook, from the test reports read with the metadata to the captures
+                  long deadline = System.nanoTime() + configuration.getCaptureTimeout().toNanos();
+                  captureScanDumps(buildScanDataDir.toPath(), scanDumpPaths, collectBuildScanMetadata(deadline), capturePolicy, claims, eagerCaptures, deadline);
               } else {
                   LOGGER.debug("No unpublished build scan found");
               }
@@ -155,56 +290,222 @@ public final class MavenBuildScanCaptureListener implements DevelocityListener {
       } else {
           LOGGER.debug("Unpublished build scan capture disabled");
       }
+
+      // eager captures not published, either disabled for this build result or of a scan dump gone since
+      for (Map.Entry<Path, ScanDumpCapture> eagerCapture : eagerCaptures.entrySet()) {
+          eagerCapture.getValue().abort();
+          capturePolicy.release(eagerCapture.getKey());
+      }
+
+      // scan dumps still in place, skipped or not captured, can be claimed by a later invocation
+      claims.releaseAll();
+    }
+
+    void evictStaleScanDumps() {
+        ScanDumpClaims claims = getScanDumpClaims();
+        try {
+            locateScanDumps(new File(configuration.getBuildScanDataDir()), new ScanDumpRetention(configuration, fileManager, captureMetrics, claims));
+        } catch (IOException e) {
+            LOGGER.warn("Could not evict stale build scans", e);
+        } finally {
+            claims.releaseAll();
+        }
+        saveCaptureMetrics(buildState.getBuildId());
     }
 
-    private String collectBuildScanMetadata() {
-        return String.format("PR_NUMBER=%s\nPROJECT_ID=%s\nWORKFLOW_NAME=%s\nJOB_NAME=%s\nBUILD_TOOL_VERSION=%s\nREQUESTED_TASKS=%s\nBUILD_FAILURE=%s\nTIMESTAMP=%s\n%s",
-                configuration.getPrNumber(),
-                buildState.getArtifactId(),
-                configuration.getWorkflowName(),
-                configuration.getJobName(),
-                buildState.getMavenVersion(),
-                buildState.getMavenGoals(),
-                buildState.isBuildFailure(),
-                buildState.getBuildTimestamp(),
-                getBuildScanLinkEntry()
-        );
+    // Returns the scan dumps left in place by the retention
+    private List<Path> locateScanDumps(File buildScanDataDir, ScanDumpRetention retention) throws IOException {
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.LOCATE);
+        List<Path> scanDumpPaths = fileManager.findScanDumps(buildScanDataDir);
+        timer.stop(0, scanDumpPaths.size());
+        return retention.evict(scanDumpPaths, getBuildStartMillis());
+    }
+
+    // Without a build timestamp every scan dump is considered as written by this build and none is evicted
+    private long getBuildStartMillis() {
+        String buildTimestamp = buildState.getBuildTimestamp();
+        return buildTimestamp != null ? Long.parseLong(buildTimestamp) : 0;
+    }
+
+    private void captureScanDumps(Path buildScanDataDir, List<Path> scanDumpPaths, BuildMetadata currentMetadata, CapturePolicy capturePolicy, ScanDumpClaims claims, Map<Path, ScanDumpCapture> eagerCaptures, long deadline) {
+        // The policy is evaluated for every scan dump before any capture starts, eager captures were claimed and evaluated when staged
+        // Scan dumps claimed by a concurrent Maven invocation are left to it
+        awaitSettled(claims, scanDumpPaths);
+        List<ScanDumpCapture> captures = new ArrayList<>();
+        for (Path scanDumpPath : scanDumpPaths) {
+            ScanDumpCapture eagerCapture = eagerCaptures.remove(scanDumpPath.getParent());
+            if (eagerCapture != null) {
+                eagerCapture.setCurrentMetadata(currentMetadata);
+                captures.add(eagerCapture);
+                continue;
+            }
+            if (!claim(claims, scanDumpPath.getParent())) {
+                continue;
+            }
+            ScanDumpCapture capture = new ScanDumpCapture(configuration, fileManager, captureMetrics, buildScanDataDir, scanDumpPath.getParent(), currentMetadata);
+            String skipReason = evaluateCapturePolicy(capturePolicy, scanDumpPath.getParent());
+            if (skipReason != null) {
+                capture.skip(skipReason);
+                claims.release(scanDumpPath.getParent());
+            } else {
+                captures.add(capture);
+            }
+        }
+        if (captures.isEmpty()) {
+            return;
+        }
+
+        // Captures still running when the budget is exhausted are aborted
+        int threads = Math.min(captures.size(), MAX_CAPTURE_THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, CAPTURE_THREAD_FACTORY);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (ScanDumpCapture capture : captures) {
+                futures.add(executor.submit(capture));
+            }
+            for (int i = 0; i < captures.size(); i++) {
+                try {
+                    futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Could not capture unpublished build scan", e.getCause());
+                    capturePolicy.release(captures.get(i).getScanDumpDir());
+                } catch (TimeoutException e) {
+                    if (captures.get(i).abort()) {
+                        futures.get(i).cancel(true);
+                        captures.get(i).skip(CAPTURE_SKIPPED_TIMEOUT);
+                        capturePolicy.release(captures.get(i).getScanDumpDir());
+                    } else {
+                        // the capture is being published and may still delete the scan dump
+                        claims.keep(captures.get(i).getScanDumpDir());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while capturing unpublished build scans");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitSettled(ScanDumpClaims claims, List<Path> scanDumpPaths) {
+        List<Path> scanDumpDirs = new ArrayList<>();
+        for (Path scanDumpPath : scanDumpPaths) {
+            scanDumpDirs.add(scanDumpPath.getParent());
+        }
+        try {
+            claims.awaitSettled(scanDumpDirs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean claim(ScanDumpClaims claims, Path scanDumpDir) {
+        try {
+            return claims.claim(scanDumpDir);
+        } catch (IOException e) {
+            LOGGER.warn("Could not claim build scan " + scanDumpDir.getFileName() + ", leaving it in place", e);
+            return false;
+        }
+    }
+
+    private static String evaluateCapturePolicy(CapturePolicy capturePolicy, Path scanDumpDir) {
+        try {
+            return capturePolicy.evaluate(scanDumpDir);
+        } catch (IOException e) {
+            LOGGER.warn("Could not evaluate capture policy for " + scanDumpDir.getFileName() + ", capturing it anyway", e);
+            return null;
+        }
+    }
+
+    // The test reports are read within what remains of the capture budget
+    private BuildMetadata collectBuildScanMetadata(long deadline) {
+        if (testReports != null) {
+            testReports.parse(deadline);
+        }
+        return collectBuildScanMetadata();
+    }
+
+    BuildMetadata collectBuildScanMetadata() {
+        BuildMetadata metadata = new BuildMetadata(buildState.getBuildId())
+                .put("PR_NUMBER", configuration.getPrNumber())
+                .put("PROJECT_ID", buildState.getArtifactId())
+                .put("WORKFLOW_NAME", configuration.getWorkflowName())
+                .put("JOB_NAME", configuration.getJobName())
+                .put("BUILD_TOOL_VERSION", getMavenVersion())
+                .put("REQUESTED_TASKS", buildState.getMavenGoals())
+                .put("BUILD_FAILURE", buildState.isBuildFailure())
+                .put("TIMESTAMP", buildState.getBuildTimestamp());
+        if (hasBuildScanLink()) {
+            metadata.put("BUILD_SCAN_LINK", buildState.getBuildScanLink());
+        }
+        if (executionTimings != null) {
+            metadata.put("SLOWEST_MODULES", executionTimings.getSlowestModules())
+                    .put("SLOWEST_MOJOS", executionTimings.getSlowestMojos());
+        }
+        if (transferStats != null) {
+            String repositories = transferStats.getRepositories();
+            if (repositories != null) {
+                metadata.put("TRANSFER_REPOSITORIES", repositories)
+                        .put("SLOWEST_DOWNLOADS", transferStats.getSlowestDownloads());
+            }
+        }
+        if (testReports != null) {
+            String testResults = testReports.getTestResults();
+            if (testResults != null) {
+                metadata.put("TEST_RESULTS", testResults)
+                        .put("SLOWEST_TEST_CLASSES", testReports.getSlowestTestClasses());
+            }
+        }
+        if (jvmProfile != null) {
+            metadata.put("JVM_PROFILE", jvmProfile.getSummary());
+        }
+        if (buildCacheStats != null) {
+            String buildCacheSummary = buildCacheStats.getSummary(executionTimings != null ? executionTimings.getMojoExecutions() : -1);
+            if (buildCacheSummary != null) {
+                metadata.put("BUILD_CACHE", buildCacheSummary);
+            }
+        }
+        return metadata;
     }
 
     private void saveBuildScanMetadata() {
         try {
             LOGGER.debug("Saving build scan metadata for " + buildState.getBuildId());
-            fileManager.writeContent(getMetadataFile(buildState.getBuildId()), collectBuildScanMetadata());
+            new MetadataWriter(configuration, fileManager, captureMetrics).append(configuration.getBuildScanMetadataDir(), collectBuildScanMetadata());
         } catch (IOException e) {
             LOGGER.warn("Could not create build metadata file", e);
         }
     }
 
     private void appendBuildScanLinkToMetadataFile() {
-        String buildScanLinkEntry = getBuildScanLinkEntry();
-        if(!buildScanLinkEntry.isEmpty()) {
+        if(hasBuildScanLink()) {
             try {
-                LOGGER.debug("Adding build scan link for " + configuration.getBuildId());
-                fileManager.writeContent(getMetadataFile(configuration.getBuildId()), buildScanLinkEntry);
+                String buildId = configuration.getBuildId();
+                String metadataDir = configuration.getBuildScanMetadataDir();
+                File indexFile = RepublicationIndex.getIndexFile(metadataDir);
+                RepublicationIndex index = RepublicationIndex.parse(fileManager.readContent(indexFile));
+                if (index.isLinked(buildId, buildState.getBuildScanLink())) {
+                    LOGGER.debug("Build scan link already added for " + buildId);
+                    return;
+                }
+
+                LOGGER.debug("Adding build scan link for " + buildId);
+                BuildMetadata metadata = new BuildMetadata(buildId).put("BUILD_SCAN_LINK", buildState.getBuildScanLink());
+                MetadataWriter metadataWriter = new MetadataWriter(configuration, fileManager, captureMetrics);
+                metadataWriter.appendToJournal(metadataDir, metadata);
+                if (configuration.isLegacyMetadataFiles()) {
+                    metadataWriter.replaceInLegacyFile(metadataDir, metadata);
+                }
+                index.put(buildId, buildState.getBuildScanLink());
+                fileManager.writeContentAtomically(indexFile, index.toContent());
             } catch (IOException e) {
                 LOGGER.warn("Could not update metadata file", e);
             }
         }
     }
 
-    private String getBuildScanLinkEntry() {
-        String buildScanLinkEntry = "";
-        if(buildState.getBuildScanLink() != null && !buildState.getBuildScanLink().isEmpty()) {
-            buildScanLinkEntry = String.format("BUILD_SCAN_LINK=%s\n", buildState.getBuildScanLink());
-        }
-        return buildScanLinkEntry;
-    }
-
-    private File getMetadataFile(String buildId) {
-        return Paths.get(configuration.getBuildScanMetadataDir(), buildId + ".txt").toFile();
-    }
-
-    private File getMetadataCopyFile(String buildId) {
-        return Paths.get(configuration.getBuildScanMetadataCopyDir(), buildId + ".txt").toFile();
+    private boolean hasBuildScanLink() {
+        return buildState.getBuildScanLink() != null && !buildState.getBuildScanLink().isEmpty();
     }
 }
@@ -0,0 +1,51 @@
+package com.gradle;
+
+import java.io.File;
+import java.io.IOException;
+
+// Appends build metadata to the job journal and, when enabled, to the legacy <buildId>.txt file
+class MetadataWriter {
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final CaptureMetrics captureMetrics;
+
+    MetadataWriter(Configuration configuration, FileManager fileManager, CaptureMetrics captureMetrics) {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+        this.captureMetrics = captureMetrics;
+    }
+
+    void append(String metadataDir, BuildMetadata metadata) throws IOException {
+        appendToJournal(metadataDir, metadata);
+        if (configuration.isLegacyMetadataFiles()) {
+            String properties = metadata.toProperties();
+            CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.METADATA);
+            fileManager.writeContent(BuildMetadata.getLegacyFile(metadataDir, metadata.getBuildId()), properties);
+            timer.stop(properties.length(), 1);
+        }
+    }
+
+    void appendToJournal(String metadataDir, BuildMetadata metadata) throws IOException {
+        String record = metadata.toJournalRecord();
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.METADATA);
+        fileManager.writeContent(BuildMetadata.getJournalFile(metadataDir, configuration.getJobName()), record);
+        timer.stop(record.length(), 1);
+    }
+
+    // Replaces the entries of the legacy file in place, keeping the other entries and their order
+    void replaceInLegacyFile(String metadataDir, BuildMetadata metadata) throws IOException {
+        File file = BuildMetadata.getLegacyFile(metadataDir, metadata.getBuildId());
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.METADATA);
+        String properties = metadata.mergeIntoProperties(fileManager.readContent(file));
+        fileManager.writeContentAtomically(file, properties);
+        timer.stop(properties.length(), 1);
+    }
+
+    void writeLegacyFile(File file, BuildMetadata metadata) throws IOException {
+        String properties = metadata.toProperties();
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.METADATA);
+        fileManager.writeContentAtomically(file, properties);
+        timer.stop(properties.length(), 1);
+    }
+}
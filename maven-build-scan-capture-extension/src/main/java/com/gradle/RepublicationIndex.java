@@ -0,0 +1,50 @@
+package com.gradle;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Build Scan links recorded by republication, one '<buildId> <link>' line per build
+// Republication runs one Maven invocation per scan dump, a retried run reads this single file instead of
+// the metadata of every build to find the builds already linked
+final class RepublicationIndex {
+
+    static final String FILE_NAME = "republication.index";
+
+    private final Map<String, String> links = new LinkedHashMap<>();
+
+    static File getIndexFile(String metadataDir) {
+        return Paths.get(metadataDir, FILE_NAME).toFile();
+    }
+
+    static RepublicationIndex parse(String content) {
+        RepublicationIndex index = new RepublicationIndex();
+        if (content != null) {
+            for (String line : content.split("\n")) {
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    index.links.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        }
+        return index;
+    }
+
+    boolean isLinked(String buildId, String link) {
+        return link.equals(links.get(buildId));
+    }
+
+    // Returns the link replaced, null for a build not linked yet
+    String put(String buildId, String link) {
+        return links.put(buildId, link);
+    }
+
+    String toContent() {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : links.entrySet()) {
+            content.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return content.toString();
+    }
+}
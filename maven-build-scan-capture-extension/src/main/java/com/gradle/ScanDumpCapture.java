@@ -0,0 +1,296 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Captures a single scan dump (build-scan-data/<version>/previous/<buildId>)
+// Data and metadata are written to a staging directory first, then moved atomically to the copy directories,
+// so an interrupted capture never leaves a partial dump behind for the publication
+// An eager capture stages the data during the build, before the build metadata is known, and is published by call()
+class ScanDumpCapture implements Callable<Void> {
+
+    static final String STAGING_DIR = ".staging";
+    static final String ARCHIVE_EXTENSION = ".zip";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanDumpCapture.class);
+
+    private enum State {
+        PENDING, STAGED, PUBLISHING, ABORTED
+    }
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final CaptureMetrics captureMetrics;
+    private final Path buildScanDataDir;
+    private final Path scanDumpDir;
+    private final MetadataWriter metadataWriter;
+    private final String buildId;
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    private BuildMetadata metadata;
+    private IntegrityManifest integrityManifest;
+    private Future<Void> eagerStaging;
+
+    ScanDumpCapture(Configuration configuration, FileManager fileManager, CaptureMetrics captureMetrics, Path buildScanDataDir, Path scanDumpDir, BuildMetadata currentMetadata) {
+        this(configuration, fileManager, captureMetrics, buildScanDataDir, scanDumpDir);
+        setCurrentMetadata(currentMetadata);
+    }
+
+    // The current build metadata must be set before the capture is published
+    ScanDumpCapture(Configuration configuration, FileManager fileManager, CaptureMetrics captureMetrics, Path buildScanDataDir, Path scanDumpDir) {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+        this.captureMetrics = captureMetrics;
+        this.buildScanDataDir = buildScanDataDir;
+        this.scanDumpDir = scanDumpDir;
+        this.buildId = scanDumpDir.getFileName().toString();
+        this.metadataWriter = new MetadataWriter(configuration, fileManager, captureMetrics);
+        this.metadata = new BuildMetadata(buildId);
+    }
+
+    void setCurrentMetadata(BuildMetadata currentMetadata) {
+        metadata = currentMetadata.withBuildId(buildId);
+        metadata.put("BUILD_SCAN_INTEGRITY", buildId + IntegrityManifest.EXTENSION);
+        if (configuration.getCaptureMode() == Configuration.CaptureMode.ARCHIVE) {
+            metadata.put("BUILD_SCAN_ARCHIVE", buildId + ARCHIVE_EXTENSION);
+        } else if (configuration.getCaptureMode() == Configuration.CaptureMode.STORE) {
+            metadata.put("BUILD_SCAN_MANIFEST", buildId + ContentStore.MANIFEST_EXTENSION);
+        }
+    }
+
+    String getBuildId() {
+        return buildId;
+    }
+
+    Path getScanDumpDir() {
+        return scanDumpDir;
+    }
+
+    // Stages the data on the given executor, call() publishes it once the build metadata is known
+    void stageEagerly(ExecutorService executor) {
+        eagerStaging = executor.submit(() -> {
+            LOGGER.info("Eagerly capturing build scan " + buildId);
+            try {
+                stage();
+            } catch (IOException | RuntimeException e) {
+                discard();
+                throw e;
+            }
+            if (!state.compareAndSet(State.PENDING, State.STAGED)) {
+                LOGGER.debug("Discarding aborted eager capture of " + buildId);
+                discard();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Void call() throws IOException {
+        LOGGER.info("Found unpublished build scan " + buildId);
+        if (eagerStaging != null && awaitEagerStaging()) {
+            if (!isModifiedSinceStaging()) {
+                if (state.compareAndSet(State.STAGED, State.PUBLISHING)) {
+                    publish();
+                }
+                return null;
+            }
+            // the staged data is discarded by abort() once the state is not STAGED anymore
+            if (!state.compareAndSet(State.STAGED, State.PENDING)) {
+                return null;
+            }
+            LOGGER.info("Build scan " + buildId + " was modified after its eager capture, capturing it again");
+            discard();
+        }
+
+        try {
+            stage();
+        } catch (IOException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+
+        if (!state.compareAndSet(State.PENDING, State.PUBLISHING)) {
+            LOGGER.debug("Discarding aborted capture of " + buildId);
+            discard();
+            return null;
+        }
+
+        publish();
+        return null;
+    }
+
+    // Returns false if the capture is already being published
+    boolean abort() {
+        if (state.compareAndSet(State.STAGED, State.ABORTED)) {
+            discard();
+            return true;
+        }
+        return state.compareAndSet(State.PENDING, State.ABORTED);
+    }
+
+    // Returns false if the eager staging failed, it was then already discarded
+    private boolean awaitEagerStaging() throws IOException {
+        try {
+            eagerStaging.get();
+            return true;
+        } catch (ExecutionException e) {
+            LOGGER.info("Could not eagerly capture build scan " + buildId + ": " + e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            eagerStaging.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for the eager capture of " + buildId);
+        }
+    }
+
+    private boolean isModifiedSinceStaging() throws IOException {
+        return fileManager.sizeOfDirectory(scanDumpDir.toFile()) != integrityManifest.getTotalBytes();
+    }
+
+    // Records that the scan dump was not captured so the publication knows about it
+    void skip(String reason) {
+        try {
+            LOGGER.warn("Skipping capture of build scan " + buildId + ": " + reason);
+            BuildMetadata skippedMetadata = metadata.withBuildId(buildId).put("BUILD_SCAN_CAPTURE_SKIPPED", reason);
+            metadataWriter.appendToJournal(configuration.getBuildScanMetadataCopyDir(), skippedMetadata);
+            if (configuration.isLegacyMetadataFiles()) {
+                metadataWriter.writeLegacyFile(getMetadataCopyFile(), skippedMetadata);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not record skipped build scan " + buildId, e);
+        }
+    }
+
+    private void stage() throws IOException {
+        integrityManifest = new IntegrityManifest(buildScanDataDir.relativize(scanDumpDir).toString());
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.COPY);
+        long capturedBytes;
+        switch (configuration.getCaptureMode()) {
+            case ARCHIVE:
+                LOGGER.debug("Archiving unpublished build scan data for " + buildId);
+                File archive = getStagedData();
+                capturedBytes = fileManager.archiveDirectory(scanDumpDir.toFile(), buildScanDataDir.toFile(), archive, configuration.getCaptureCompressionLevel(), integrityManifest);
+                LOGGER.info("Archived build scan data for " + buildId + " (" + capturedBytes + " bytes compressed to " + archive.length() + " bytes)");
+                break;
+            case STORE:
+                LOGGER.debug("Storing unpublished build scan data for " + buildId);
+                DirectoryTransfer storeTransfer = fileManager.storeDirectory(scanDumpDir.toFile(), buildScanDataDir.toFile(), getStoreDir().resolve(ContentStore.OBJECTS_DIR).toFile(), getStagedData(), integrityManifest);
+                LOGGER.info("Stored build scan data for " + buildId + " (" + storeTransfer.getBytesAvoided() + " bytes deduplicated)");
+                capturedBytes = integrityManifest.getTotalBytes();
+                break;
+            case MOVE:
+                LOGGER.debug("Moving unpublished build scan data for " + buildId);
+                DirectoryTransfer transfer = fileManager.moveDirectory(scanDumpDir.toFile(), getStagedData(), integrityManifest);
+                LOGGER.info("Captured build scan data for " + buildId + " with " + transfer.getMode() + " (" + transfer.getBytesAvoided() + " bytes not copied)");
+                capturedBytes = integrityManifest.getTotalBytes();
+                break;
+            default:
+                LOGGER.debug("Saving unpublished build scan data for " + buildId);
+                fileManager.copyDirectory(scanDumpDir.toFile(), getStagedData(), integrityManifest);
+                capturedBytes = integrityManifest.getTotalBytes();
+        }
+        timer.stop(capturedBytes, 1);
+
+        // sizes and checksums were computed during the transfer
+        fileManager.writeContentAtomically(getStagedIntegrityManifest(), integrityManifest.toContent());
+    }
+
+    private void publish() throws IOException {
+        LOGGER.debug("Publishing captured build scan " + buildId);
+        if (configuration.isLegacyMetadataFiles()) {
+            metadataWriter.writeLegacyFile(getStagedMetadata(), metadata);
+        }
+        fileManager.moveAtomically(getStagedData(), getPublishedData());
+        fileManager.moveAtomically(getStagedIntegrityManifest(), getIntegrityManifestCopyFile());
+        if (configuration.isLegacyMetadataFiles()) {
+            fileManager.moveAtomically(getStagedMetadata(), getMetadataCopyFile());
+        }
+
+        // the journal record is only appended once the data is in place
+        LOGGER.debug("Saving unpublished build scan metadata for " + buildId);
+        metadataWriter.appendToJournal(configuration.getBuildScanMetadataCopyDir(), metadata);
+
+        if (configuration.getCaptureMode() != Configuration.CaptureMode.MOVE) {
+            LOGGER.debug("Delete build scan data for " + buildId);
+            CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.DELETE);
+            fileManager.deleteDirectory(scanDumpDir.toFile());
+            timer.stop(0, 1);
+        }
+    }
+
+    private void discard() {
+        try {
+            File stagedData = getStagedData();
+            if (configuration.getCaptureMode() == Configuration.CaptureMode.MOVE && stagedData.exists()) {
+                // the scan dump is not in build-scan-data anymore, put it back for a later capture
+                fileManager.moveDirectory(stagedData, scanDumpDir.toFile(), null);
+            } else if (configuration.getCaptureMode() == Configuration.CaptureMode.ARCHIVE || configuration.getCaptureMode() == Configuration.CaptureMode.STORE) {
+                // stored objects are left in place, they may already be referenced by another build
+                fileManager.deleteFile(stagedData);
+            } else {
+                fileManager.deleteDirectory(stagedData);
+            }
+            fileManager.deleteFile(getStagedMetadata());
+            fileManager.deleteFile(getStagedIntegrityManifest());
+        } catch (IOException e) {
+            LOGGER.warn("Could not discard staged build scan " + buildId, e);
+        }
+    }
+
+    private File getStagedData() {
+        switch (configuration.getCaptureMode()) {
+            case ARCHIVE:
+                return getStagingDir().resolve(buildId + ARCHIVE_EXTENSION).toFile();
+            case STORE:
+                return getStagingDir().resolve(buildId + ContentStore.MANIFEST_EXTENSION).toFile();
+            default:
+                return getStagingDir().resolve(buildId).toFile();
+        }
+    }
+
+    private File getStagedMetadata() {
+        return getStagingDir().resolve(buildId + BuildMetadata.LEGACY_EXTENSION).toFile();
+    }
+
+    private File getStagedIntegrityManifest() {
+        return getStagingDir().resolve(buildId + IntegrityManifest.EXTENSION).toFile();
+    }
+
+    private File getIntegrityManifestCopyFile() {
+        return Paths.get(configuration.getBuildScanMetadataCopyDir(), buildId + IntegrityManifest.EXTENSION).toFile();
+    }
+
+    private File getPublishedData() {
+        Path buildScanDataCopyDir = Paths.get(configuration.getBuildScanDataCopyDir());
+        switch (configuration.getCaptureMode()) {
+            case ARCHIVE:
+                return buildScanDataCopyDir.resolve(buildId + ARCHIVE_EXTENSION).toFile();
+            case STORE:
+                return getStoreDir().resolve(ContentStore.MANIFESTS_DIR).resolve(buildId + ContentStore.MANIFEST_EXTENSION).toFile();
+            default:
+                return buildScanDataCopyDir.resolve(buildScanDataDir.relativize(scanDumpDir)).toFile();
+        }
+    }
+
+    private Path getStoreDir() {
+        return Paths.get(configuration.getBuildScanDataCopyDir(), ContentStore.STORE_DIR);
+    }
+
+    private File getMetadataCopyFile() {
+        return BuildMetadata.getLegacyFile(configuration.getBuildScanMetadataCopyDir(), buildId);
+    }
+
+    private Path getStagingDir() {
+        return Paths.get(configuration.getBuildScanDataCopyDir(), STAGING_DIR);
+    }
+}
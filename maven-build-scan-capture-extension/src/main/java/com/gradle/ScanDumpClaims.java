@@ -0,0 +1,107 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Exclusive claims on the scan dumps of build-scan-data, shared by the Maven invocations of a job
+// Concurrent invocations see each other's scan dumps, only the one holding the claim captures or evicts a scan dump
+// A claim is a lock on a marker file next to the staged captures, released by the OS if the invocation dies
+class ScanDumpClaims {
+
+    static final String CLAIMS_DIR = "claims";
+    static final String CLAIM_EXTENSION = ".claim";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanDumpClaims.class);
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final Map<Path, Closeable> claims = new ConcurrentHashMap<>();
+
+    ScanDumpClaims(Configuration configuration, FileManager fileManager) {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+    }
+
+    // Waits once for the most recently written scan dump to settle, e.g. the one of this build written right before the capture,
+    // so none of them is skipped by claim as still being written
+    void awaitSettled(List<Path> scanDumpDirs) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long unsettledMillis = 0;
+        for (Path scanDumpDir : scanDumpDirs) {
+            try {
+                long lastModified = fileManager.getLastModified(scanDumpDir.resolve(ScanDumpLocator.SCAN_DUMP_FILE).toFile());
+                unsettledMillis = Math.max(unsettledMillis, lastModified + ScanDumpWatcher.SETTLE_MILLIS - now);
+            } catch (IOException e) {
+                // captured since it was found, claim skips it
+            }
+        }
+        if (unsettledMillis > 0) {
+            Thread.sleep(Math.min(unsettledMillis, ScanDumpWatcher.SETTLE_MILLIS));
+        }
+    }
+
+    // Returns false if the scan dump is claimed by another invocation, was captured since it was found, or is still being written
+    // A scan dump is complete once its scan.scan file has not changed for ScanDumpWatcher.SETTLE_MILLIS, as for the watcher,
+    // a scan dump written less than that ago is left in place for the watcher or a later invocation, claim never waits
+    boolean claim(Path scanDumpDir) throws IOException {
+        if (claims.containsKey(scanDumpDir)) {
+            return true;
+        }
+        Closeable claim = fileManager.lockExclusively(getClaimFile(scanDumpDir));
+        if (claim == null) {
+            LOGGER.debug("Build scan " + scanDumpDir.getFileName() + " is claimed by another Maven invocation");
+            return false;
+        }
+        File scanDumpFile = scanDumpDir.resolve(ScanDumpLocator.SCAN_DUMP_FILE).toFile();
+        try {
+            // marker files are kept once released, the scan dump may have been captured by their previous owner
+            if (fileManager.getLastModified(scanDumpFile) + ScanDumpWatcher.SETTLE_MILLIS > System.currentTimeMillis()) {
+                LOGGER.debug("Build scan " + scanDumpDir.getFileName() + " is still being written");
+                claim.close();
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("Build scan " + scanDumpDir.getFileName() + " was captured by another Maven invocation");
+            claim.close();
+            return false;
+        }
+        claims.put(scanDumpDir, claim);
+        return true;
+    }
+
+    void release(Path scanDumpDir) {
+        Closeable claim = claims.remove(scanDumpDir);
+        if (claim != null) {
+            try {
+                claim.close();
+            } catch (IOException e) {
+                LOGGER.debug("Could not release claim on " + scanDumpDir.getFileName(), e);
+            }
+        }
+    }
+
+    // The claim is held until the JVM exits, e.g. while an abandoned capture may still delete the scan dump
+    void keep(Path scanDumpDir) {
+        claims.remove(scanDumpDir);
+    }
+
+    void releaseAll() {
+        for (Path scanDumpDir : claims.keySet()) {
+            release(scanDumpDir);
+        }
+    }
+
+    private File getClaimFile(Path scanDumpDir) {
+        return Paths.get(configuration.getBuildScanDataCopyDir(), ScanDumpCapture.STAGING_DIR, CLAIMS_DIR, scanDumpDir.getFileName() + CLAIM_EXTENSION).toFile();
+    }
+}
@@ -0,0 +1,49 @@
+package com.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Build Scan dumps are stored as build-scan-data/<version>/previous/<buildId>/scan.scan
+// Only this fixed layout is visited, any other subtree is skipped without being listed
+class ScanDumpLocator {
+
+    static final String PREVIOUS_DIR = "previous";
+    static final String SCAN_DUMP_FILE = "scan.scan";
+
+    private static final DirectoryStream.Filter<Path> IS_DIRECTORY = path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+
+    private ScanDumpLocator() {}
+
+    static List<Path> find(File buildScanDataDir) throws IOException {
+        Path root = buildScanDataDir.toPath();
+        if (!Files.isDirectory(root)) {
+            return Collections.emptyList();
+        }
+
+        List<Path> scanDumps = new ArrayList<>();
+        try (DirectoryStream<Path> versionDirs = Files.newDirectoryStream(root, IS_DIRECTORY)) {
+            for (Path versionDir : versionDirs) {
+                Path previousDir = versionDir.resolve(PREVIOUS_DIR);
+                if (!Files.isDirectory(previousDir, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> buildDirs = Files.newDirectoryStream(previousDir, IS_DIRECTORY)) {
+                    for (Path buildDir : buildDirs) {
+                        Path scanDump = buildDir.resolve(SCAN_DUMP_FILE);
+                        if (Files.isRegularFile(scanDump, LinkOption.NOFOLLOW_LINKS)) {
+                            scanDumps.add(scanDump);
+                        }
+                    }
+                }
+            }
+        }
+        return scanDumps;
+    }
+}
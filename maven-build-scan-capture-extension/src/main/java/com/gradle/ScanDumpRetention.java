@@ -0,0 +1,119 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Evicts the oldest scan dumps left in the Build Scan data directory, e.g. by jobs which crashed or did not capture them
+// on a persistent runner, once they exceed the retention limits (0 disables a limit)
+// Scan dumps written since the build started belong to it and are never evicted
+class ScanDumpRetention {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanDumpRetention.class);
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final CaptureMetrics captureMetrics;
+    private final ScanDumpClaims claims;
+
+    ScanDumpRetention(Configuration configuration, FileManager fileManager, CaptureMetrics captureMetrics, ScanDumpClaims claims) {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+        this.captureMetrics = captureMetrics;
+        this.claims = claims;
+    }
+
+    boolean isEnabled() {
+        return isEnabled(configuration);
+    }
+
+    static boolean isEnabled(Configuration configuration) {
+        return configuration.getRetentionMaxAge().toMillis() > 0
+                || configuration.getRetentionMaxCount() > 0
+                || configuration.getRetentionMaxSize() > 0;
+    }
+
+    // Returns the scan dumps left in place, in their original order
+    List<Path> evict(List<Path> scanDumpPaths, long buildStartMillis) throws IOException {
+        if (!isEnabled() || scanDumpPaths.isEmpty()) {
+            return scanDumpPaths;
+        }
+
+        long maxAgeMillis = configuration.getRetentionMaxAge().toMillis();
+        int maxCount = configuration.getRetentionMaxCount();
+        long maxSize = configuration.getRetentionMaxSize();
+        long now = System.currentTimeMillis();
+
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.EVICT);
+        // only the scan dump file is read for the age and count limits, the data is walked for the size limit only
+        List<RetainedScanDump> scanDumps = new ArrayList<>();
+        for (Path scanDumpPath : scanDumpPaths) {
+            long lastModified = fileManager.getLastModified(scanDumpPath.toFile());
+            long size = maxSize > 0 ? fileManager.sizeOfDirectory(scanDumpPath.getParent().toFile()) : 0;
+            scanDumps.add(new RetainedScanDump(scanDumpPath, lastModified, size));
+        }
+        scanDumps.sort(Comparator.comparingLong((RetainedScanDump scanDump) -> scanDump.lastModified).reversed());
+
+        // the newest scan dumps are kept first, the ones of this build count against the limits without being evicted
+        int keptCount = 0;
+        long keptSize = 0;
+        long evictedSize = 0;
+        List<Path> evicted = new ArrayList<>();
+        for (RetainedScanDump scanDump : scanDumps) {
+            boolean current = scanDump.lastModified >= buildStartMillis;
+            boolean exceeded = (maxAgeMillis > 0 && now - scanDump.lastModified > maxAgeMillis)
+                    || (maxCount > 0 && keptCount >= maxCount)
+                    || (maxSize > 0 && keptSize + scanDump.size > maxSize);
+            // a scan dump claimed by a concurrent Maven invocation is being captured by it
+            if (current || !exceeded || !claims.claim(scanDump.path.getParent())) {
+                keptCount++;
+                keptSize += scanDump.size;
+                continue;
+            }
+            try {
+                fileManager.deleteDirectory(scanDump.path.getParent().toFile());
+                evictedSize += scanDump.size;
+            } catch (IOException e) {
+                LOGGER.warn("Could not evict build scan " + scanDump.path.getParent().getFileName(), e);
+            } finally {
+                claims.release(scanDump.path.getParent());
+            }
+            // a partially deleted scan dump can't be captured either
+            evicted.add(scanDump.path);
+        }
+        timer.stop(evictedSize, evicted.size());
+
+        if (evicted.isEmpty()) {
+            return scanDumpPaths;
+        }
+        LOGGER.info("Evicted " + evicted.size() + " stale build scans" + (maxSize > 0 ? " (" + evictedSize + " bytes)" : "") + ": " + getBuildIds(evicted));
+        List<Path> kept = new ArrayList<>(scanDumpPaths);
+        kept.removeAll(evicted);
+        return kept;
+    }
+
+    private static String getBuildIds(List<Path> scanDumpPaths) {
+        List<String> buildIds = new ArrayList<>();
+        for (Path scanDumpPath : scanDumpPaths) {
+            buildIds.add(scanDumpPath.getParent().getFileName().toString());
+        }
+        return String.join(", ", buildIds);
+    }
+
+    private static final class RetainedScanDump {
+        private final Path path;
+        private final long lastModified;
+        private final long size;
+
+        private RetainedScanDump(Path path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Watches build-scan-data during the build and stages each new scan dump as soon as it is complete,
+// so the shutdown hook only has to publish it with the build metadata
+// Only the build-scan-data/<version>/previous/<buildId> layout is registered, a scan dump is considered complete
+// once its scan.scan file has not changed for SETTLE_MILLIS
+class ScanDumpWatcher {
+
+    static final long SETTLE_MILLIS = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanDumpWatcher.class);
+    private static final long POLL_MILLIS = 200;
+    private static final int BUILD_DIR_DEPTH = 3;
+
+    private final Configuration configuration;
+    private final FileManager fileManager;
+    private final CaptureMetrics captureMetrics;
+    private final CapturePolicy capturePolicy;
+    private final ScanDumpClaims claims;
+    private final Path buildScanDataDir;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> existingScanDumpDirs = new HashSet<>();
+    // scan dump directories not settled yet, with the time of their last change
+    private final Map<Path, Long> changedScanDumpDirs = new HashMap<>();
+    private final Map<Path, ScanDumpCapture> eagerCaptures = new HashMap<>();
+    private final ExecutorService stagingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "build-scan-eager-capture");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread watchThread = new Thread(this::watch, "build-scan-watch");
+
+    ScanDumpWatcher(Configuration configuration, FileManager fileManager, CaptureMetrics captureMetrics, CapturePolicy capturePolicy, ScanDumpClaims claims, Path buildScanDataDir) throws IOException {
+        this.configuration = configuration;
+        this.fileManager = fileManager;
+        this.captureMetrics = captureMetrics;
+        this.capturePolicy = capturePolicy;
+        this.claims = claims;
+        this.buildScanDataDir = buildScanDataDir;
+        Files.createDirectories(buildScanDataDir);
+        this.watchService = buildScanDataDir.getFileSystem().newWatchService();
+        // scan dumps already present were left by previous invocations, they are captured by the shutdown hook
+        register(buildScanDataDir, 0, true);
+    }
+
+    CapturePolicy getCapturePolicy() {
+        return capturePolicy;
+    }
+
+    void start() {
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    // Stops watching and returns the eager captures by scan dump directory
+    // Scan dumps not settled yet are left to the shutdown hook
+    Map<Path, ScanDumpCapture> stop() {
+        try {
+            watchService.close();
+            watchThread.join();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close build scan data watch service", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stagingExecutor.shutdown();
+        return eagerCaptures;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    processEvents(key);
+                }
+                stageSettledScanDumps();
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching build scan data");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Stopped watching build scan data, remaining scan dumps are captured at the end of the build", e);
+        }
+    }
+
+    private void processEvents(WatchKey key) throws IOException {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, every directory is registered again and its scan dumps checked
+                register(buildScanDataDir, 0, false);
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            int depth = buildScanDataDir.relativize(child).getNameCount();
+            if (depth <= BUILD_DIR_DEPTH && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // files may have been created before the directory was registered
+                register(child, depth, false);
+            } else if (depth == BUILD_DIR_DEPTH + 1 && child.getFileName().toString().equals(ScanDumpLocator.SCAN_DUMP_FILE)) {
+                changedScanDumpDirs.put(dir, System.nanoTime());
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    // Registers the directory and its subdirectories matching the scan dump layout
+    private void register(Path dir, int depth, boolean existing) throws IOException {
+        if (depth == 2 && !dir.getFileName().toString().equals(ScanDumpLocator.PREVIOUS_DIR)) {
+            return;
+        }
+        if (!watchedDirs.containsValue(dir)) {
+            watchedDirs.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+        }
+        if (depth == BUILD_DIR_DEPTH) {
+            if (Files.isRegularFile(dir.resolve(ScanDumpLocator.SCAN_DUMP_FILE), LinkOption.NOFOLLOW_LINKS)) {
+                if (existing) {
+                    existingScanDumpDirs.add(dir);
+                } else {
+                    changedScanDumpDirs.putIfAbsent(dir, System.nanoTime());
+                }
+            }
+            return;
+        }
+        try (DirectoryStream<Path> subDirs = Files.newDirectoryStream(dir, path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))) {
+            for (Path subDir : subDirs) {
+                register(subDir, depth + 1, existing);
+            }
+        }
+    }
+
+    private void stageSettledScanDumps() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Long>> iterator = changedScanDumpDirs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> changedScanDumpDir = iterator.next();
+            if (now - changedScanDumpDir.getValue() >= TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS)) {
+                iterator.remove();
+                stage(changedScanDumpDir.getKey());
+            }
+        }
+    }
+
+    private void stage(Path scanDumpDir) {
+        if (existingScanDumpDirs.contains(scanDumpDir) || eagerCaptures.containsKey(scanDumpDir)) {
+            return;
+        }
+        try {
+            // the scan dump may have been written by a concurrent Maven invocation which claimed it first
+            if (!claims.claim(scanDumpDir)) {
+                return;
+            }
+            // a scan dump not captured eagerly is claimed and evaluated again, and its skip recorded, by the shutdown hook
+            if (capturePolicy.evaluate(scanDumpDir) != null) {
+                claims.release(scanDumpDir);
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not claim or evaluate capture policy for " + scanDumpDir.getFileName(), e);
+            claims.release(scanDumpDir);
+            return;
+        }
+        ScanDumpCapture capture = new ScanDumpCapture(configuration, fileManager, captureMetrics, buildScanDataDir, scanDumpDir);
+        capture.stageEagerly(stagingExecutor);
+        eagerCaptures.put(scanDumpDir, capture);
+    }
+}
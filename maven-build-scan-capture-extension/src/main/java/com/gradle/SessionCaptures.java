@@ -0,0 +1,30 @@
+package com.gradle;
+
+import org.apache.maven.execution.MavenSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Captures to run when a Maven session ends, keyed by session
+// A daemon JVM runs many sessions, possibly concurrently, so the capture can't wait for the JVM to exit
+final class SessionCaptures {
+
+    // MavenSession doesn't override equals, sessions are keyed by identity
+    private static final Map<MavenSession, Runnable> CAPTURES = new ConcurrentHashMap<>();
+
+    private SessionCaptures() {}
+
+    static void register(MavenSession session, Runnable capture) {
+        CAPTURES.put(session, capture);
+    }
+
+    // Returns false if no capture was registered for the session
+    static boolean end(MavenSession session) {
+        Runnable capture = CAPTURES.remove(session);
+        if (capture == null) {
+            return false;
+        }
+        capture.run();
+        return true;
+    }
+}
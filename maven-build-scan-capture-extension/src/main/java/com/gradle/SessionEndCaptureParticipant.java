@@ -0,0 +1,42 @@
+package com.gradle;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.component.annotations.Component;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@SuppressWarnings("unused")
+@Component(
+        role = AbstractMavenLifecycleParticipant.class,
+        hint = "maven-build-scan-capture-extension",
+        description = "Maven Build Scan capture at session end"
+)
+public final class SessionEndCaptureParticipant extends AbstractMavenLifecycleParticipant {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionEndCaptureParticipant.class);
+
+    // The repository session is read-only once the projects are read, before the Develocity listener is configured,
+    // so transfers are observed from here and the listener finds the statistics on the repository session
+    @Override
+    public void afterSessionStart(MavenSession session) {
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        Configuration configuration = DefaultConfiguration.get();
+        if (!(repositorySession instanceof DefaultRepositorySystemSession) || !configuration.isCaptureEnabled()) {
+            return;
+        }
+        try {
+            DefaultRepositorySystemSession defaultRepositorySession = (DefaultRepositorySystemSession) repositorySession;
+            defaultRepositorySession.setTransferListener(new TransferStatsListener(defaultRepositorySession.getTransferListener(), configuration.getSlowestExecutions()));
+        } catch (IllegalStateException e) {
+            LOGGER.debug("Could not observe transfers of a read-only repository session", e);
+        }
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        SessionCaptures.end(session);
+    }
+}
@@ -0,0 +1,59 @@
+package com.gradle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Keeps the slowest entries in a min-heap, faster entries are rejected without locking once it is full
+final class SlowestEntries {
+
+    private final int capacity;
+    private final PriorityQueue<Entry> entries;
+    private volatile long threshold = -1;
+
+    SlowestEntries(int capacity) {
+        this.capacity = capacity;
+        this.entries = new PriorityQueue<>(capacity + 1, (a, b) -> Long.compare(a.durationNanos, b.durationNanos));
+    }
+
+    // Callers check it before building the name of the entry
+    boolean admits(long durationNanos) {
+        return capacity > 0 && durationNanos > threshold;
+    }
+
+    synchronized void add(String name, long durationNanos) {
+        entries.add(new Entry(name, durationNanos));
+        if (entries.size() > capacity) {
+            entries.poll();
+        }
+        if (entries.size() == capacity) {
+            threshold = entries.peek().durationNanos;
+        }
+    }
+
+    // <name>=<millis>, slowest first
+    @Override
+    public synchronized String toString() {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Long.compare(b.durationNanos, a.durationNanos));
+        StringBuilder builder = new StringBuilder();
+        for (Entry entry : sorted) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(entry.name).append('=').append(entry.durationNanos / 1_000_000);
+        }
+        return builder.toString();
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final long durationNanos;
+
+        private Entry(String name, long durationNanos) {
+            this.name = name;
+            this.durationNanos = durationNanos;
+        }
+    }
+}
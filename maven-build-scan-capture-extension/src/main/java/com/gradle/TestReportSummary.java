@@ -0,0 +1,226 @@
+package com.gradle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Aggregates the surefire and failsafe XML reports written by the modules of the reactor during the build
+// Reports are read with StAX: counts and time are attributes of the <testsuite> element, which surefire writes first,
+// so the output of the tests which makes reports large is never read when the report has a <testsuite> root
+// Modules are parsed in parallel, reports not parsed within the time budget are left out and the summary is incomplete
+class TestReportSummary {
+
+    static final Duration MAX_PARSE_TIME = Duration.ofSeconds(10);
+    static final String[] REPORT_DIRS = {"surefire-reports", "failsafe-reports"};
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestReportSummary.class);
+    private static final int MAX_PARSE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final String TEST_SUITE = "testsuite";
+
+    private final List<Path> buildDirs;
+    private final long buildStartMillis;
+    private final int slowestCount;
+    private final Duration timeout;
+    private final CaptureMetrics captureMetrics;
+    private boolean parsed;
+    private Totals totals;
+    private SlowestEntries slowestClasses;
+
+    TestReportSummary(List<Path> buildDirs, long buildStartMillis, int slowestCount, Duration timeout, CaptureMetrics captureMetrics) {
+        this.buildDirs = buildDirs;
+        this.buildStartMillis = buildStartMillis;
+        this.slowestCount = slowestCount;
+        this.timeout = timeout;
+        this.captureMetrics = captureMetrics;
+    }
+
+    // tests=<n>, failures=<n>, errors=<n>, skipped=<n>, reports=<n>[, incomplete=true]
+    // Returns null when no report was written during the build
+    synchronized String getTestResults() {
+        parse();
+        if (totals.reports == 0) {
+            return null;
+        }
+        return "tests=" + totals.tests + ", failures=" + totals.failures + ", errors=" + totals.errors + ", skipped=" + totals.skipped
+                + ", reports=" + totals.reports + (totals.incomplete ? ", incomplete=true" : "");
+    }
+
+    // <test class>=<millis>, slowest first
+    synchronized String getSlowestTestClasses() {
+        parse();
+        return slowestClasses.toString();
+    }
+
+    // Reports are parsed once, the metadata is collected more than once during the capture
+    private void parse() {
+        parse(System.nanoTime() + timeout.toNanos());
+    }
+
+    // Parses the reports unless already done, within the timeout and before the deadline, a System.nanoTime() value,
+    // e.g. the end of the capture budget when the metadata is collected by the capture
+    synchronized void parse(long deadline) {
+        if (parsed) {
+            return;
+        }
+        parsed = true;
+        totals = new Totals();
+        slowestClasses = new SlowestEntries(slowestCount);
+        if (buildDirs.isEmpty()) {
+            return;
+        }
+
+        CaptureMetrics.Timer timer = captureMetrics.start(CaptureMetrics.Phase.TEST_REPORTS);
+        long timeoutDeadline = System.nanoTime() + timeout.toNanos();
+        if (deadline - timeoutDeadline > 0) {
+            deadline = timeoutDeadline;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(buildDirs.size(), MAX_PARSE_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "build-scan-test-reports");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Totals>> futures = new ArrayList<>();
+            for (Path buildDir : buildDirs) {
+                futures.add(executor.submit(() -> parseModule(buildDir)));
+            }
+            for (Future<Totals> future : futures) {
+                try {
+                    totals.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Could not read test reports", e.getCause());
+                    totals.incomplete = true;
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    totals.incomplete = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            totals.incomplete = true;
+        } finally {
+            executor.shutdownNow();
+            timer.stop(totals.bytes, totals.reports);
+        }
+    }
+
+    private Totals parseModule(Path buildDir) throws IOException {
+        Totals moduleTotals = new Totals();
+        // an XMLInputFactory is not guaranteed to be thread safe, each module gets its own
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        for (String reportDir : REPORT_DIRS) {
+            Path dir = buildDir.resolve(reportDir);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> reports = Files.newDirectoryStream(dir, "TEST-*.xml")) {
+                for (Path report : reports) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return moduleTotals;
+                    }
+                    // reports left by a previous build without clean are not part of this build
+                    if (Files.getLastModifiedTime(report).toMillis() >= buildStartMillis) {
+                        parseReport(factory, report, moduleTotals);
+                    }
+                }
+            }
+        }
+        return moduleTotals;
+    }
+
+    private void parseReport(XMLInputFactory factory, Path report, Totals moduleTotals) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(report)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                int depth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        depth--;
+                    } else if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        // suites are the root, or children of a <testsuites> root
+                        if (depth <= 2 && TEST_SUITE.equals(reader.getLocalName())) {
+                            addSuite(reader, moduleTotals);
+                            if (depth == 1) {
+                                break;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            moduleTotals.reports++;
+            moduleTotals.bytes += Files.size(report);
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            LOGGER.debug("Could not parse test report " + report, e);
+            moduleTotals.incomplete = true;
+        }
+    }
+
+    private void addSuite(XMLStreamReader reader, Totals moduleTotals) {
+        moduleTotals.tests += parseCount(reader.getAttributeValue(null, "tests"));
+        moduleTotals.failures += parseCount(reader.getAttributeValue(null, "failures"));
+        moduleTotals.errors += parseCount(reader.getAttributeValue(null, "errors"));
+        moduleTotals.skipped += parseCount(reader.getAttributeValue(null, "skipped"));
+        String name = reader.getAttributeValue(null, "name");
+        String time = reader.getAttributeValue(null, "time");
+        if (name != null && time != null) {
+            long nanos = (long) (parseNumber(time) * TimeUnit.SECONDS.toNanos(1));
+            if (slowestClasses.admits(nanos)) {
+                slowestClasses.add(name, nanos);
+            }
+        }
+    }
+
+    private static long parseCount(String value) {
+        return value != null ? (long) parseNumber(value) : 0;
+    }
+
+    // older surefire versions format numbers with grouping separators, e.g. time="1,234.5"
+    private static double parseNumber(String value) {
+        return Double.parseDouble(value.replace(",", ""));
+    }
+
+    private static final class Totals {
+
+        private long tests;
+        private long failures;
+        private long errors;
+        private long skipped;
+        private long reports;
+        private long bytes;
+        private boolean incomplete;
+
+        private void add(Totals other) {
+            tests += other.tests;
+            failures += other.failures;
+            errors += other.errors;
+            skipped += other.skipped;
+            reports += other.reports;
+            bytes += other.bytes;
+            incomplete |= other.incomplete;
+        }
+    }
+}
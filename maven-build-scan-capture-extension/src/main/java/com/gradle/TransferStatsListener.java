@@ -0,0 +1,139 @@
+package com.gradle;
+
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Aggregates the artifact downloads of the resolver per repository, then forwards the event to the previous listener
+// Downloads run on several resolver threads, counters are LongAdders and only the slowest downloads take a lock
+// A download lasts from the creation of its resource, connection included, to its last event
+class TransferStatsListener implements TransferListener {
+
+    private final TransferListener delegate;
+    private final SlowestEntries slowestDownloads;
+    private final LongSupplier clock;
+    private final Map<String, RepositoryStats> repositories = new ConcurrentHashMap<>();
+
+    TransferStatsListener(TransferListener delegate, int slowestCount) {
+        this(delegate, slowestCount, System::currentTimeMillis);
+    }
+
+    TransferStatsListener(TransferListener delegate, int slowestCount, LongSupplier clock) {
+        this.delegate = delegate;
+        this.slowestDownloads = new SlowestEntries(slowestCount);
+        this.clock = clock;
+    }
+
+    // <repositoryId>: downloads=<n>, bytes=<n>, millis=<n>, bytesPerSecond=<n>, failures=<n>; ...
+    // Repositories are sorted by download time, the slowest first, millis sums the downloads which may overlap
+    // Returns null when nothing was downloaded
+    String getRepositories() {
+        List<Map.Entry<String, RepositoryStats>> sorted = new ArrayList<>(repositories.entrySet());
+        if (sorted.isEmpty()) {
+            return null;
+        }
+        sorted.sort((a, b) -> Long.compare(b.getValue().millis.sum(), a.getValue().millis.sum()));
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, RepositoryStats> entry : sorted) {
+            RepositoryStats stats = entry.getValue();
+            long bytes = stats.bytes.sum();
+            long millis = stats.millis.sum();
+            if (builder.length() > 0) {
+                builder.append("; ");
+            }
+            builder.append(entry.getKey())
+                    .append(": downloads=").append(stats.downloads.sum())
+                    .append(", bytes=").append(bytes)
+                    .append(", millis=").append(millis)
+                    .append(", bytesPerSecond=").append(millis > 0 ? bytes * 1000 / millis : 0)
+                    .append(", failures=").append(stats.failures.sum());
+        }
+        return builder.toString();
+    }
+
+    // <repositoryId>/<resource>=<millis>, slowest first
+    String getSlowestDownloads() {
+        return slowestDownloads.toString();
+    }
+
+    @Override
+    public void transferInitiated(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferInitiated(event);
+        }
+    }
+
+    @Override
+    public void transferStarted(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferStarted(event);
+        }
+    }
+
+    @Override
+    public void transferProgressed(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferProgressed(event);
+        }
+    }
+
+    @Override
+    public void transferCorrupted(TransferEvent event) throws TransferCancelledException {
+        if (delegate != null) {
+            delegate.transferCorrupted(event);
+        }
+    }
+
+    @Override
+    public void transferSucceeded(TransferEvent event) {
+        if (event.getRequestType() == TransferEvent.RequestType.GET) {
+            TransferResource resource = event.getResource();
+            long millis = Math.max(0, clock.getAsLong() - resource.getTransferStartTime());
+            RepositoryStats stats = getRepositoryStats(resource);
+            stats.downloads.increment();
+            stats.bytes.add(event.getTransferredBytes());
+            stats.millis.add(millis);
+            long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            if (slowestDownloads.admits(nanos)) {
+                slowestDownloads.add(resource.getRepositoryId() + "/" + resource.getResourceName(), nanos);
+            }
+        }
+        if (delegate != null) {
+            delegate.transferSucceeded(event);
+        }
+    }
+
+    // Includes resources missing from a repository, Maven looks up metadata in each repository in turn
+    @Override
+    public void transferFailed(TransferEvent event) {
+        if (event.getRequestType() == TransferEvent.RequestType.GET) {
+            getRepositoryStats(event.getResource()).failures.increment();
+        }
+        if (delegate != null) {
+            delegate.transferFailed(event);
+        }
+    }
+
+    private RepositoryStats getRepositoryStats(TransferResource resource) {
+        // get first, computeIfAbsent locks the bin even when the repository is present
+        RepositoryStats stats = repositories.get(resource.getRepositoryId());
+        return stats != null ? stats : repositories.computeIfAbsent(resource.getRepositoryId(), id -> new RepositoryStats());
+    }
+
+    private static final class RepositoryStats {
+
+        private final LongAdder downloads = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder millis = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+}
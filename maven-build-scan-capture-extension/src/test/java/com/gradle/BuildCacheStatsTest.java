@@ -0,0 +1,119 @@
+package com.gradle;
+
+import com.gradle.develocity.agent.maven.api.cache.BuildCacheApi;
+import com.gradle.develocity.agent.maven.api.cache.LocalBuildCache;
+import com.gradle.develocity.agent.maven.api.cache.RemoteBuildCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BuildCacheStatsTest {
+
+    @TempDir
+    Path storageDir;
+
+    private final BuildCacheApi buildCacheMock = mock(BuildCacheApi.class);
+    private final LocalBuildCache localBuildCacheMock = mock(LocalBuildCache.class);
+    private final RemoteBuildCache remoteBuildCacheMock = mock(RemoteBuildCache.class);
+
+    @BeforeEach
+    void setup() {
+        when(buildCacheMock.getLocal()).thenReturn(localBuildCacheMock);
+        when(buildCacheMock.getRemote()).thenReturn(remoteBuildCacheMock);
+        when(localBuildCacheMock.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void getSummary_withLoadedAndStoredEntries_countsLocalOutcomes() throws Exception {
+        // given
+        Path cacheDir = storageDir.resolve(BuildCacheStats.DEFAULT_CACHE_DIR).resolve("v2");
+        Path loaded = createEntry(cacheDir.resolve("0123456789abcdef0123456789abcdef"), 10);
+        createEntry(cacheDir.resolve("fedcba9876543210fedcba9876543210"), 20);
+        createEntry(cacheDir.resolve("gc.properties"), 1);
+        BuildCacheStats underTest = BuildCacheStats.start(buildCacheMock, storageDir, Runnable::run);
+
+        // when
+        Files.setLastModifiedTime(loaded, FileTime.fromMillis(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1)));
+        Files.write(cacheDir.resolve("00112233445566778899aabbccddeeff"), new byte[30]);
+        String summary = underTest.getSummary(5);
+
+        // then
+        assertTrue(summary.matches("goals=5, localLoads=1, localLoadBytes=10, localStores=1, localStoreBytes=30, remoteEnabled=false, scanMillis=\\d+"), summary);
+    }
+
+    @Test
+    void getSummary_withCustomDirectory_reportsCustomDirectory() throws Exception {
+        // given
+        Path cacheDir = storageDir.resolve("custom");
+        when(localBuildCacheMock.getDirectory()).thenReturn(cacheDir.toFile());
+        BuildCacheStats underTest = BuildCacheStats.start(buildCacheMock, storageDir, Runnable::run);
+
+        // when
+        Files.createDirectories(cacheDir.resolve("v2"));
+        Files.write(cacheDir.resolve("v2").resolve("0123456789abcdef0123456789abcdef"), new byte[10]);
+        String summary = underTest.getSummary(-1);
+
+        // then
+        assertTrue(summary.matches("localLoads=0, localLoadBytes=0, localStores=1, localStoreBytes=10, remoteEnabled=false, scanMillis=\\d+"), summary);
+    }
+
+    @Test
+    void getSummary_withRemoteCache_countsUsedEntries() throws Exception {
+        // given
+        when(remoteBuildCacheMock.isEnabled()).thenReturn(true);
+        Path cacheDir = storageDir.resolve(BuildCacheStats.DEFAULT_CACHE_DIR).resolve("v2");
+        Path loaded = createEntry(cacheDir.resolve("0123456789abcdef0123456789abcdef"), 10);
+        BuildCacheStats underTest = BuildCacheStats.start(buildCacheMock, storageDir, Runnable::run);
+
+        // when
+        Files.setLastModifiedTime(loaded, FileTime.fromMillis(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1)));
+        Files.write(cacheDir.resolve("00112233445566778899aabbccddeeff"), new byte[30]);
+        String summary = underTest.getSummary(5);
+
+        // then
+        assertTrue(summary.matches("goals=5, localEntries=2, localEntryBytes=40, remoteEnabled=true, scanMillis=\\d+"), summary);
+    }
+
+    @Test
+    void getSummary_withBackgroundListing_waitsForListing() throws Exception {
+        // given
+        Path cacheDir = storageDir.resolve(BuildCacheStats.DEFAULT_CACHE_DIR).resolve("v2");
+        createEntry(cacheDir.resolve("0123456789abcdef0123456789abcdef"), 10);
+        BuildCacheStats underTest = BuildCacheStats.start(buildCacheMock, storageDir);
+
+        // when
+        String summary = underTest.getSummary(5);
+
+        // then
+        assertTrue(summary.matches("goals=5, localLoads=0, localLoadBytes=0, localStores=0, localStoreBytes=0, remoteEnabled=false, scanMillis=\\d+"), summary);
+    }
+
+    @Test
+    void start_withLocalCacheDisabled_returnsNull() {
+        // given
+        when(localBuildCacheMock.isEnabled()).thenReturn(false);
+
+        // when
+        BuildCacheStats underTest = BuildCacheStats.start(buildCacheMock, storageDir);
+
+        // then
+        assertNull(underTest);
+    }
+
+    private static Path createEntry(Path entry, int size) throws Exception {
+        Files.createDirectories(entry.getParent());
+        Files.write(entry, new byte[size]);
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+        return entry;
+    }
+}
@@ -0,0 +1,63 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BuildMetadataTest {
+
+    @Test
+    void toJournalRecord_withSpecialCharacters_escapes() {
+        // given
+        BuildMetadata metadata = new BuildMetadata("abcdef")
+                .put("REQUESTED_TASKS", "clean \"verify\"\tC:\\build\n")
+                .put("BUILD_FAILURE", false);
+
+        // when
+        String record = metadata.toJournalRecord();
+
+        // then
+        assertEquals("{\"version\":1,\"buildId\":\"abcdef\",\"entries\":{\"REQUESTED_TASKS\":\"clean \\\"verify\\\"\\tC:\\\\build\\n\",\"BUILD_FAILURE\":\"false\"}}\n", record);
+    }
+
+    @Test
+    void mergeIntoProperties_withDuplicatedKey_replacesInPlace() {
+        // given
+        BuildMetadata metadata = new BuildMetadata("abcdef").put("BUILD_SCAN_LINK", "newLink").put("PR_NUMBER", 42);
+
+        // when
+        String properties = metadata.mergeIntoProperties("JOB_NAME=job\nBUILD_SCAN_LINK=oldLink\nTIMESTAMP=1\nBUILD_SCAN_LINK=olderLink\n");
+
+        // then
+        assertEquals("JOB_NAME=job\nBUILD_SCAN_LINK=newLink\nTIMESTAMP=1\nPR_NUMBER=42\n", properties);
+    }
+
+    @Test
+    void withBuildId_copiesEntries() {
+        // given
+        BuildMetadata metadata = new BuildMetadata("abcdef").put("PR_NUMBER", 42);
+
+        // when
+        BuildMetadata copy = metadata.withBuildId("ghijkl").put("BUILD_SCAN_ARCHIVE", "ghijkl.zip");
+
+        // then
+        assertEquals("ghijkl", copy.getBuildId());
+        assertEquals("PR_NUMBER=42\nBUILD_SCAN_ARCHIVE=ghijkl.zip\n", copy.toProperties());
+        assertEquals("PR_NUMBER=42\n", metadata.toProperties());
+    }
+
+    @Test
+    void withBuildId_withCurrentBuildEntries_leavesThemOut() {
+        // given
+        BuildMetadata metadata = new BuildMetadata("abcdef")
+                .put("PR_NUMBER", 42)
+                .put("BUILD_SCAN_LINK", "https://develocity/s/abcdef")
+                .put("SLOWEST_MOJOS", "module:plugin:goal (default)=100");
+
+        // when
+        BuildMetadata copy = metadata.withBuildId("ghijkl");
+
+        // then
+        assertEquals("PR_NUMBER=42\n", copy.toProperties());
+    }
+}
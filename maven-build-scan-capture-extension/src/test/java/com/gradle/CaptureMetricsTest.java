@@ -0,0 +1,46 @@
+package com.gradle;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stop_withRecording_accumulatesAndEmitsEvents() throws Exception {
+        // given
+        CaptureMetrics underTest = new CaptureMetrics();
+        Path recordingFile = tempDir.resolve("capture.jfr");
+
+        // when
+        try (Recording recording = new Recording()) {
+            recording.enable("com.gradle.BuildScanCapturePhase");
+            recording.start();
+            underTest.start(CaptureMetrics.Phase.COPY).stop(100, 1);
+            underTest.start(CaptureMetrics.Phase.COPY).stop(50, 1);
+            underTest.start(CaptureMetrics.Phase.LOCATE).stop(0, 2);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        // then
+        assertEquals(150, underTest.getBytes(CaptureMetrics.Phase.COPY));
+        assertEquals(2, underTest.getFiles(CaptureMetrics.Phase.LOCATE));
+        assertTrue(underTest.toRecord("abcdef").contains("\"COPY\":{\"count\":2,"));
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertEquals(3, events.size());
+        assertEquals("COPY", events.get(0).getString("phase"));
+        assertEquals(100, events.get(0).getLong("bytes"));
+    }
+}
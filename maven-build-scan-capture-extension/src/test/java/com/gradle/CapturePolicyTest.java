@@ -0,0 +1,70 @@
+package com.gradle;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CapturePolicyTest {
+
+    private static final Path SCAN_DUMP_DIR = Paths.get("dataDir", "2.5.0", "previous", "abcdef");
+
+    private final Configuration configurationMock = mock(Configuration.class);
+    private final FileManager fileManagerMock = mock(FileManager.class);
+    private final CapturePolicy underTest = new CapturePolicy(configurationMock, fileManagerMock);
+
+    @BeforeEach
+    void setup() throws Exception {
+        when(configurationMock.getCaptureMinFreeSpace()).thenReturn(100L);
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(fileManagerMock.sizeOfDirectory(SCAN_DUMP_DIR.toFile())).thenReturn(50L);
+        when(fileManagerMock.getUsableSpace(any(File.class))).thenReturn(120L);
+    }
+
+    @Test
+    void evaluate_withMoveModeAndFreeSpaceBelowDumpSize_captures() throws Exception {
+        // given
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.MOVE);
+
+        // when
+        String skipReason = underTest.evaluate(SCAN_DUMP_DIR);
+
+        // then
+        assertNull(skipReason);
+    }
+
+    @Test
+    void evaluate_withCopyModeAndFreeSpaceBelowDumpSize_skips() throws Exception {
+        // given
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+
+        // when
+        String skipReason = underTest.evaluate(SCAN_DUMP_DIR);
+
+        // then
+        assertEquals(CapturePolicy.SKIPPED_MIN_FREE_SPACE, skipReason);
+    }
+
+    @Test
+    void evaluate_withCopyModeAndPlannedCaptures_countsPlannedBytes() throws Exception {
+        // given
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(fileManagerMock.getUsableSpace(any(File.class))).thenReturn(180L);
+
+        // when
+        String firstSkipReason = underTest.evaluate(SCAN_DUMP_DIR);
+        String secondSkipReason = underTest.evaluate(SCAN_DUMP_DIR);
+
+        // then
+        assertNull(firstSkipReason);
+        assertEquals(CapturePolicy.SKIPPED_MIN_FREE_SPACE, secondSkipReason);
+    }
+}
@@ -0,0 +1,98 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultConfigurationTest {
+
+    @Test
+    void from_withOnFailureStrategy_capturesFailedBuildsOnly() {
+        // given
+        Map<String, String> env = new HashMap<>();
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_STRATEGY, "ON_FAILURE");
+
+        // when
+        Configuration configuration = DefaultConfiguration.from(env);
+
+        // then
+        assertTrue(configuration.isCaptureEnabled());
+        assertTrue(configuration.isCaptureUnpublishedBuildScans(true));
+        assertFalse(configuration.isCaptureUnpublishedBuildScans(false));
+        assertTrue(configuration.isCaptureBuildScanLinks(true));
+        assertFalse(configuration.isCaptureBuildScanLinks(false));
+    }
+
+    @Test
+    void from_withOnDemandStrategyNotRequested_disablesCapture() {
+        // given
+        Map<String, String> env = new HashMap<>();
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_STRATEGY, "ON_DEMAND");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_CURRENT_ENABLED, "false");
+
+        // when
+        Configuration configuration = DefaultConfiguration.from(env);
+
+        // then
+        assertFalse(configuration.isCaptureEnabled());
+        assertFalse(configuration.isCaptureUnpublishedBuildScans(true));
+        assertFalse(configuration.isCaptureBuildScanLinks(false));
+    }
+
+    @Test
+    void from_withOnDemandStrategyRequested_capturesAnyBuild() {
+        // given
+        Map<String, String> env = new HashMap<>();
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_STRATEGY, "ON_DEMAND");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_CURRENT_ENABLED, "true");
+
+        // when
+        Configuration configuration = DefaultConfiguration.from(env);
+
+        // then
+        assertTrue(configuration.isCaptureEnabled());
+        assertTrue(configuration.isCaptureUnpublishedBuildScans(false));
+        assertTrue(configuration.isCaptureBuildScanLinks(true));
+    }
+
+    @Test
+    void from_withUnpublishedBuildScansAndLinksDisabled_disablesCapture() {
+        // given
+        Map<String, String> env = new HashMap<>();
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_UNPUBLISHED_BUILD_SCANS, "false");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_BUILD_SCAN_LINKS, "false");
+
+        // when
+        Configuration configuration = DefaultConfiguration.from(env);
+
+        // then
+        assertFalse(configuration.isCaptureEnabled());
+    }
+
+    @Test
+    void from_withInvalidValues_usesDefaults() {
+        // given
+        Map<String, String> env = new HashMap<>();
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_MODE, "RENAME");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_TIMEOUT, "1m");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_MAX_DUMP_SIZE, "10");
+        env.put(DefaultConfiguration.CONFIG_KEY_CAPTURE_COMPRESSION_LEVEL, "12");
+
+        // when
+        Configuration configuration = DefaultConfiguration.from(env);
+
+        // then
+        assertEquals(Configuration.CaptureMode.MOVE, configuration.getCaptureMode());
+        assertEquals(Duration.ofSeconds(60), configuration.getCaptureTimeout());
+        assertEquals(10 * 1024 * 1024, configuration.getCaptureMaxDumpSize());
+        assertEquals(0, configuration.getCaptureMinFreeSpace());
+        assertEquals(Deflater.DEFAULT_COMPRESSION, configuration.getCaptureCompressionLevel());
+    }
+}
@@ -0,0 +1,409 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.zip.Checksum;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultFileManagerTest {
+
+    private final DefaultFileManager underTest = new DefaultFileManager();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void moveDirectory_toMissingTarget_moves() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+
+        // when
+        DirectoryTransfer transfer = underTest.moveDirectory(source.toFile(), target.toFile(), null);
+
+        // then
+        assertEquals(DirectoryTransfer.Mode.MOVE, transfer.getMode());
+        assertEquals(10, transfer.getBytesAvoided());
+        assertFalse(Files.exists(source));
+        assertArrayEquals(new byte[10], Files.readAllBytes(target.resolve("scan.scan")));
+    }
+
+    @Test
+    void moveDirectory_toExistingTarget_links() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        createFile(source.resolve("nested/resource.bin"), 5);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+        createFile(target.resolve("existing.txt"), 1);
+
+        // when
+        DirectoryTransfer transfer = underTest.moveDirectory(source.toFile(), target.toFile(), null);
+
+        // then
+        assertEquals(DirectoryTransfer.Mode.HARD_LINK, transfer.getMode());
+        assertEquals(15, transfer.getBytesAvoided());
+        assertFalse(Files.exists(source));
+        assertArrayEquals(new byte[10], Files.readAllBytes(target.resolve("scan.scan")));
+        assertArrayEquals(new byte[5], Files.readAllBytes(target.resolve("nested/resource.bin")));
+        assertArrayEquals(new byte[1], Files.readAllBytes(target.resolve("existing.txt")));
+    }
+
+    @Test
+    void moveDirectory_withConflictingTargetFile_copies() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+        createFile(target.resolve("scan.scan"), 1);
+
+        // when
+        DirectoryTransfer transfer = underTest.moveDirectory(source.toFile(), target.toFile(), null);
+
+        // then
+        assertEquals(DirectoryTransfer.Mode.COPY, transfer.getMode());
+        assertEquals(0, transfer.getBytesAvoided());
+        assertFalse(Files.exists(source));
+        assertArrayEquals(new byte[10], Files.readAllBytes(target.resolve("scan.scan")));
+    }
+
+    @Test
+    void copyDirectory_withSmallAndLargeFiles_copiesContentAndTimestamps() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        FileTime lastModified = FileTime.fromMillis(1_000_000_000_000L);
+        for (int i = 0; i < 100; i++) {
+            createFile(source.resolve("resources/file-" + i), i);
+        }
+        byte[] largeContent = new byte[(int) DirectoryCopier.TRANSFER_THRESHOLD * 3 + 7];
+        largeContent[largeContent.length - 1] = 42;
+        Files.write(source.resolve("scan.scan"), largeContent);
+        Files.setLastModifiedTime(source.resolve("scan.scan"), lastModified);
+        Files.setLastModifiedTime(source.resolve("resources/file-42"), lastModified);
+        Files.setLastModifiedTime(source.resolve("resources"), lastModified);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+
+        // when
+        underTest.copyDirectory(source.toFile(), target.toFile(), null);
+
+        // then
+        assertArrayEquals(largeContent, Files.readAllBytes(target.resolve("scan.scan")));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, Files.size(target.resolve("resources/file-" + i)));
+        }
+        assertEquals(lastModified, Files.getLastModifiedTime(target.resolve("scan.scan")));
+        assertEquals(lastModified, Files.getLastModifiedTime(target.resolve("resources/file-42")));
+        assertEquals(lastModified, Files.getLastModifiedTime(target.resolve("resources")));
+        assertTrue(Files.exists(source.resolve("scan.scan")));
+    }
+
+    @Test
+    void copyDirectory_withManifest_recordsSizesAndChecksums() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        byte[] scanContent = "scan content".getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(source);
+        Files.write(source.resolve("scan.scan"), scanContent);
+        createFile(source.resolve("nested/resource.bin"), 5);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+        IntegrityManifest manifest = new IntegrityManifest("2.5.0/previous/abcdef");
+
+        // when
+        underTest.copyDirectory(source.toFile(), target.toFile(), manifest);
+
+        // then
+        assertEquals(2, manifest.size());
+        assertEquals(scanContent.length + 5, manifest.getTotalBytes());
+        String content = manifest.toContent();
+        assertTrue(content.startsWith("#algorithm=" + IntegrityManifest.getAlgorithm() + "\n#dump=2.5.0/previous/abcdef\n"));
+        assertTrue(content.contains(checksumOf(scanContent) + " " + scanContent.length + " scan.scan\n"));
+        assertTrue(content.contains(checksumOf(new byte[5]) + " 5 nested/resource.bin\n"));
+    }
+
+    @Test
+    void moveDirectory_withManifest_recordsSizesOfMovedFiles() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+        IntegrityManifest manifest = new IntegrityManifest("2.5.0/previous/abcdef");
+
+        // when
+        underTest.moveDirectory(source.toFile(), target.toFile(), manifest);
+
+        // then
+        assertTrue(manifest.toContent().endsWith("- 10 scan.scan\n"));
+    }
+
+    @Test
+    void moveDirectory_toExistingTargetWithManifest_recordsSizesOfLinkedFiles() throws Exception {
+        // given
+        Path source = tempDir.resolve("data/2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        createFile(source.resolve("nested/resource.bin"), 5);
+        Path target = tempDir.resolve("copy/2.5.0/previous/abcdef");
+        createFile(target.resolve("existing.txt"), 1);
+        IntegrityManifest manifest = new IntegrityManifest("2.5.0/previous/abcdef");
+
+        // when
+        DirectoryTransfer transfer = underTest.moveDirectory(source.toFile(), target.toFile(), manifest);
+
+        // then
+        assertEquals(DirectoryTransfer.Mode.HARD_LINK, transfer.getMode());
+        assertEquals(15, manifest.getTotalBytes());
+        assertTrue(manifest.toContent().endsWith("- 5 nested/resource.bin\n- 10 scan.scan\n"));
+    }
+
+    @Test
+    void archiveDirectory_withNestedFiles_archivesRelativeToBaseDir() throws Exception {
+        // given
+        Path baseDir = tempDir.resolve("data");
+        Path source = baseDir.resolve("2.5.0/previous/abcdef");
+        createFile(source.resolve("scan.scan"), 10);
+        createFile(source.resolve("nested/resource.bin"), 5);
+        Path archive = tempDir.resolve("copy/abcdef.zip");
+
+        // when
+        long archivedBytes = underTest.archiveDirectory(source.toFile(), baseDir.toFile(), archive.toFile(), 9, null);
+
+        // then
+        assertEquals(15, archivedBytes);
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(10, zipFile.getEntry("2.5.0/previous/abcdef/scan.scan").getSize());
+            assertEquals(5, zipFile.getEntry("2.5.0/previous/abcdef/nested/resource.bin").getSize());
+            assertEquals(2, zipFile.size());
+        }
+    }
+
+    @Test
+    void storeDirectory_withIdenticalFiles_deduplicates() throws Exception {
+        // given
+        Path baseDir = tempDir.resolve("data");
+        Path firstBuild = baseDir.resolve("2.5.0/previous/abcdef");
+        Files.createDirectories(firstBuild.resolve("resources"));
+        Files.write(firstBuild.resolve("scan.scan"), new byte[]{1, 2, 3});
+        Files.write(firstBuild.resolve("resources/plugin.bin"), new byte[]{4, 5});
+        Path secondBuild = baseDir.resolve("2.5.0/previous/ghijkl");
+        Files.createDirectories(secondBuild.resolve("resources"));
+        Files.write(secondBuild.resolve("scan.scan"), new byte[]{6});
+        Files.write(secondBuild.resolve("resources/plugin.bin"), new byte[]{4, 5});
+        Path objectsDir = tempDir.resolve("copy/store/objects");
+
+        // when
+        DirectoryTransfer firstTransfer = underTest.storeDirectory(firstBuild.toFile(), baseDir.toFile(), objectsDir.toFile(), tempDir.resolve("abcdef.manifest").toFile(), null);
+        DirectoryTransfer secondTransfer = underTest.storeDirectory(secondBuild.toFile(), baseDir.toFile(), objectsDir.toFile(), tempDir.resolve("ghijkl.manifest").toFile(), null);
+
+        // then
+        assertEquals(DirectoryTransfer.Mode.DEDUPLICATE, firstTransfer.getMode());
+        assertEquals(0, firstTransfer.getBytesAvoided());
+        assertEquals(2, secondTransfer.getBytesAvoided());
+        List<String> manifest = Files.readAllLines(tempDir.resolve("ghijkl.manifest"));
+        assertEquals(2, manifest.size());
+        for (String line : manifest) {
+            String[] entry = line.split(" ", 3);
+            assertArrayEquals(Files.readAllBytes(baseDir.resolve(entry[2])), Files.readAllBytes(ContentStore.getObject(objectsDir, entry[0])));
+            assertEquals(Long.parseLong(entry[1]), Files.size(baseDir.resolve(entry[2])));
+        }
+        try (Stream<Path> objects = Files.walk(objectsDir)) {
+            assertEquals(3, objects.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void writeContent_withConcurrentWriters_appendsWholeRecords() throws Exception {
+        // given
+        File journal = tempDir.resolve("metadata/journal-job.jsonl").toFile();
+        int writers = 16;
+        int recordsPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int writer = 0; writer < writers; writer++) {
+            String record = record(writer, 16 * 1024);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < recordsPerWriter; i++) {
+                    underTest.writeContent(journal, record);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        List<String> lines = Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8);
+        assertEquals(writers * recordsPerWriter, lines.size());
+        for (String line : lines) {
+            int writer = Integer.parseInt(line.substring(0, line.indexOf(':')));
+            assertEquals(record(writer, 16 * 1024), line + "\n");
+        }
+    }
+
+    @Test
+    void writeContent_withFileLockedByAnotherProcess_waitsForRelease() throws Exception {
+        // given
+        File journal = tempDir.resolve("metadata/journal-job.jsonl").toFile();
+        Process lockHolder = startLockHolder(journal);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // when
+            Closeable exclusiveLock = underTest.lockExclusively(journal);
+            Future<?> write = executor.submit(() -> {
+                underTest.writeContent(journal, "record\n");
+                return null;
+            });
+
+            // then
+            assertNull(exclusiveLock);
+            assertThrows(TimeoutException.class, () -> write.get(500, TimeUnit.MILLISECONDS));
+            lockHolder.getOutputStream().close();
+            write.get(30, TimeUnit.SECONDS);
+            assertEquals("record\n", new String(Files.readAllBytes(journal.toPath()), StandardCharsets.UTF_8));
+            try (Closeable lock = underTest.lockExclusively(journal)) {
+                assertNotNull(lock);
+            }
+        } finally {
+            lockHolder.destroy();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void writeContentAtomically_withConcurrentWriters_writesOneWholeContent() throws Exception {
+        // given
+        Path metadataFile = tempDir.resolve("metadata/abcdef.txt");
+        Files.createDirectories(metadataFile.getParent());
+        int writers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int writer = 0; writer < writers; writer++) {
+            String content = record(writer, 64 * 1024);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    underTest.writeContentAtomically(metadataFile.toFile(), content);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        String content = new String(Files.readAllBytes(metadataFile), StandardCharsets.UTF_8);
+        int writer = Integer.parseInt(content.substring(0, content.indexOf(':')));
+        assertEquals(record(writer, 64 * 1024), content);
+        try (Stream<Path> files = Files.list(metadataFile.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void addToCounter_exceedingLimit_keepsCounter() throws Exception {
+        // given
+        File counter = tempDir.resolve(".staging/captured-bytes").toFile();
+        underTest.addToCounter(counter, 60, 100);
+
+        // when
+        boolean added = underTest.addToCounter(counter, 50, 100);
+
+        // then
+        assertFalse(added);
+        assertTrue(underTest.addToCounter(counter, -60, 0));
+        assertTrue(underTest.addToCounter(counter, 100, 100));
+        assertEquals("100", new String(Files.readAllBytes(counter.toPath()), StandardCharsets.UTF_8));
+    }
+
+    private static String record(int writer, int length) {
+        StringBuilder record = new StringBuilder().append(writer).append(':');
+        while (record.length() < length - 1) {
+            record.append((char) ('a' + writer % 26));
+        }
+        return record.append('\n').toString();
+    }
+
+    // Forks a JVM holding a file lock on the file until its standard input is closed, as a concurrent Maven invocation would
+    private static Process startLockHolder(File file) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), LockHolder.class.getName(), file.getAbsolutePath())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals(LockHolder.LOCKED, output.readLine());
+        return process;
+    }
+
+    static final class LockHolder {
+
+        static final String LOCKED = "locked";
+
+        public static void main(String[] args) throws IOException {
+            Path file = Paths.get(args[0]);
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                System.out.println(lock.isValid() ? LOCKED : "not locked");
+                System.out.flush();
+                while (System.in.read() != -1) {
+                    // held until the test closes the standard input
+                }
+            }
+        }
+    }
+
+    private static String checksumOf(byte[] content) {
+        Checksum checksum = IntegrityManifest.newChecksum();
+        checksum.update(content, 0, content.length);
+        return String.format("%08x", checksum.getValue());
+    }
+
+    private static void createFile(Path file, int size) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.gradle;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+class ExecutionTimingListenerTest {
+
+    @Mock
+    private ExecutionListener delegateMock;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void mojoSucceeded_withMoreExecutionsThanSlowest_keepsSlowest() throws Exception {
+        // given
+        ExecutionTimingListener underTest = new ExecutionTimingListener(delegateMock, 2);
+        ExecutionEvent projectEvent = event("module-a", null);
+
+        // when
+        underTest.projectStarted(projectEvent);
+        execute(underTest, event("module-a", mojoExecution("maven-compiler-plugin", "compile", "default-compile")), 40);
+        execute(underTest, event("module-a", mojoExecution("maven-resources-plugin", "resources", "default-resources")), 1);
+        execute(underTest, event("module-a", mojoExecution("maven-surefire-plugin", "test", "default-test")), 20);
+        underTest.projectSucceeded(projectEvent);
+
+        // then
+        String slowestMojos = underTest.getSlowestMojos();
+        assertTrue(slowestMojos.startsWith("module-a:maven-compiler-plugin:compile (default-compile)="), slowestMojos);
+        assertTrue(slowestMojos.contains(", module-a:maven-surefire-plugin:test (default-test)="), slowestMojos);
+        assertFalse(slowestMojos.contains("maven-resources-plugin"), slowestMojos);
+        assertTrue(underTest.getSlowestModules().startsWith("module-a="), underTest.getSlowestModules());
+        verify(delegateMock, times(3)).mojoStarted(any(ExecutionEvent.class));
+        verify(delegateMock, times(3)).mojoSucceeded(any(ExecutionEvent.class));
+        verify(delegateMock, times(1)).projectSucceeded(projectEvent);
+    }
+
+    private static void execute(ExecutionTimingListener listener, ExecutionEvent event, long millis) throws InterruptedException {
+        listener.mojoStarted(event);
+        Thread.sleep(millis);
+        listener.mojoSucceeded(event);
+    }
+
+    private static ExecutionEvent event(String artifactId, MojoExecution mojoExecution) {
+        MavenProject project = new MavenProject();
+        project.setArtifactId(artifactId);
+        ExecutionEvent event = mock(ExecutionEvent.class);
+        when(event.getProject()).thenReturn(project);
+        when(event.getMojoExecution()).thenReturn(mojoExecution);
+        return event;
+    }
+
+    private static MojoExecution mojoExecution(String pluginArtifactId, String goal, String executionId) {
+        MojoExecution mojoExecution = mock(MojoExecution.class);
+        when(mojoExecution.getArtifactId()).thenReturn(pluginArtifactId);
+        when(mojoExecution.getGoal()).thenReturn(goal);
+        when(mojoExecution.getExecutionId()).thenReturn(executionId);
+        return mojoExecution;
+    }
+}
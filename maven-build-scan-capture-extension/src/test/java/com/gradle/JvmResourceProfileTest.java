@@ -0,0 +1,55 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JvmResourceProfileTest {
+
+    @Test
+    void getSummary_afterGarbageCollection_reportsProfile() {
+        // given
+        JvmResourceProfile underTest = JvmResourceProfile.start();
+
+        // when
+        System.gc();
+        String summary = underTest.getSummary();
+
+        // then
+        Map<String, Long> profile = parse(summary);
+        assertTrue(profile.get("heapPeakBytes") > 0, summary);
+        assertTrue(profile.get("gcCount") >= 1, summary);
+        assertTrue(profile.get("cpuMillis") >= 0, summary);
+        assertTrue(profile.get("threadPeak") >= 1, summary);
+        assertTrue(profile.get("heapMaxBytes") >= profile.get("heapPeakBytes"), summary);
+        assertEquals(Runtime.getRuntime().availableProcessors(), profile.get("processors").intValue());
+    }
+
+    @Test
+    void getSummary_calledTwice_returnsFirstProfile() {
+        // given
+        JvmResourceProfile underTest = JvmResourceProfile.start();
+        String first = underTest.getSummary();
+
+        // when
+        System.gc();
+        String second = underTest.getSummary();
+
+        // then
+        assertSame(first, second);
+    }
+
+    private static Map<String, Long> parse(String summary) {
+        Map<String, Long> profile = new HashMap<>();
+        for (String entry : summary.split(", ")) {
+            String[] keyValue = entry.split("=");
+            profile.put(keyValue[0], Long.parseLong(keyValue[1]));
+        }
+        return profile;
+    }
+}
@@ -1,18 +1,34 @@
 package com.gradle;
 
+import com.gradle.develocity.agent.maven.api.DevelocityApi;
 import com.gradle.develocity.agent.maven.api.scan.PublishedBuildScan;
+import org.apache.maven.execution.MavenSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.File;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.function.BiPredicate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -30,8 +46,10 @@ class MavenBuildScanCaptureListenerTest {
     private PublishedBuildScan publishedBuildScanMock;
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
         MockitoAnnotations.openMocks(this);
+        when(configurationMock.getJobName()).thenReturn("job");
+        when(fileManagerMock.lockExclusively(any(File.class))).thenReturn(() -> {});
     }
 
     @Test
@@ -48,22 +66,228 @@ class MavenBuildScanCaptureListenerTest {
         underTest.captureBuildScanMetadata();
 
         // then
-        verify(fileManagerMock, times(1)).writeContent(any(File.class),anyString());
-        verify(fileManagerMock, never()).copyDirectory(any(File.class),any(File.class));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
         verify(fileManagerMock, never()).deleteDirectory(any(File.class));
     }
 
+    @Test
+    void captureBuildScanMetadata_withRepublicationAlreadyLinked_skipsMetadata() throws Exception {
+        // given
+        when(buildStateMock.getBuildScanLink()).thenReturn("buildScanLink");
+        when(configurationMock.isBuildScanRepublication()).thenReturn(true);
+        when(configurationMock.getBuildId()).thenReturn("foo");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(fileManagerMock.readContent(Paths.get("metadataDir", "republication.index").toFile())).thenReturn("bar otherLink\nfoo buildScanLink\n");
+        underTest.setBuildState(buildStateMock);
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, never()).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, never()).writeContentAtomically(any(File.class), anyString());
+    }
+
+    @Test
+    void captureBuildScanMetadata_withRepublicationNewLink_replacesLegacyEntry() throws Exception {
+        // given
+        when(buildStateMock.getBuildScanLink()).thenReturn("buildScanLink");
+        when(configurationMock.isBuildScanRepublication()).thenReturn(true);
+        when(configurationMock.isLegacyMetadataFiles()).thenReturn(true);
+        when(configurationMock.getBuildId()).thenReturn("foo");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(fileManagerMock.readContent(Paths.get("metadataDir", "republication.index").toFile())).thenReturn("foo oldLink\n");
+        when(fileManagerMock.readContent(Paths.get("metadataDir", "foo.txt").toFile())).thenReturn("JOB_NAME=job\nBUILD_SCAN_LINK=oldLink\nTIMESTAMP=1\n");
+        underTest.setBuildState(buildStateMock);
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_LINK\":\"buildScanLink\""));
+        verify(fileManagerMock, times(1)).writeContentAtomically(Paths.get("metadataDir", "foo.txt").toFile(), "JOB_NAME=job\nBUILD_SCAN_LINK=buildScanLink\nTIMESTAMP=1\n");
+        verify(fileManagerMock, times(1)).writeContentAtomically(Paths.get("metadataDir", "republication.index").toFile(), "foo buildScanLink\n");
+    }
+
     @Test
     void captureBuildScanMetadata_withoutRepublication_success() throws Exception {
         // given
         when(configurationMock.isBuildScanRepublication()).thenReturn(false);
         when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(configurationMock.isLegacyMetadataFiles()).thenReturn(true);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        Path[] paths = {Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan"), Paths.get("dataDir", "2.5.0", "previous", "bar", "scan.scan")};
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, times(1)).copyDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile()), eq(Paths.get("dataCopyDir", ".staging", "foo").toFile()), any());
+        verify(fileManagerMock, times(1)).copyDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "bar").toFile()), eq(Paths.get("dataCopyDir", ".staging", "bar").toFile()), any());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo").toFile(), Paths.get("dataCopyDir", "2.5.0", "previous", "foo").toFile());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "bar").toFile(), Paths.get("dataCopyDir", "2.5.0", "previous", "bar").toFile());
+        verify(fileManagerMock, times(1)).writeContentAtomically(eq(Paths.get("dataCopyDir", ".staging", "foo.txt").toFile()), contains("JOB_NAME=job"));
+        verify(fileManagerMock, times(1)).writeContentAtomically(eq(Paths.get("dataCopyDir", ".staging", "bar.txt").toFile()), contains("JOB_NAME=job"));
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo.txt").toFile(), Paths.get("metadataCopyDir", "foo.txt").toFile());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "bar.txt").toFile(), Paths.get("metadataCopyDir", "bar.txt").toFile());
+        verify(fileManagerMock, times(1)).writeContentAtomically(eq(Paths.get("dataCopyDir", ".staging", "foo.integrity").toFile()), contains("#dump=2.5.0/previous/foo"));
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo.integrity").toFile(), Paths.get("metadataCopyDir", "foo.integrity").toFile());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_INTEGRITY\":\"foo.integrity\""));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"buildId\":\"foo\""));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"buildId\":\"bar\""));
+        verify(fileManagerMock, times(2)).deleteDirectory(any(File.class));
+    }
+
+    @Test
+    void captureBuildScanMetadata_withoutRepublicationWithMoveMode_moveScanDump() throws Exception {
+        // given
+        when(configurationMock.isBuildScanRepublication()).thenReturn(false);
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.MOVE);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        Path[] paths = {Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan")};
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        when(fileManagerMock.moveDirectory(any(File.class), any(File.class), any())).thenReturn(new DirectoryTransfer(DirectoryTransfer.Mode.MOVE, 42));
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, times(1)).moveDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile()), eq(Paths.get("dataCopyDir", ".staging", "foo").toFile()), any());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo").toFile(), Paths.get("dataCopyDir", "2.5.0", "previous", "foo").toFile());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"buildId\":\"foo\""));
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
+        verify(fileManagerMock, never()).deleteDirectory(any(File.class));
+    }
+
+    @Test
+    void captureBuildScanMetadata_withoutRepublicationWithArchiveMode_archiveScanDump() throws Exception {
+        // given
+        when(configurationMock.isBuildScanRepublication()).thenReturn(false);
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.ARCHIVE);
+        when(configurationMock.getCaptureCompressionLevel()).thenReturn(1);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        Path[] paths = {Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan")};
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, times(1)).archiveDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile()), eq(new File("dataDir")), eq(Paths.get("dataCopyDir", ".staging", "foo.zip").toFile()), eq(1), any());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo.zip").toFile(), Paths.get("dataCopyDir", "foo.zip").toFile());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_ARCHIVE\":\"foo.zip\""));
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
+        verify(fileManagerMock, times(1)).deleteDirectory(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile());
+    }
+
+    @Test
+    void captureBuildScanMetadata_withoutRepublicationWithStoreMode_storeScanDump() throws Exception {
+        // given
+        when(configurationMock.isBuildScanRepublication()).thenReturn(false);
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.STORE);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        Path[] paths = {Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan")};
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        when(fileManagerMock.storeDirectory(any(File.class), any(File.class), any(File.class), any(File.class), any())).thenReturn(new DirectoryTransfer(DirectoryTransfer.Mode.DEDUPLICATE, 42));
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+
+        // then
+        verify(fileManagerMock, times(1)).storeDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile()), eq(new File("dataDir")), eq(Paths.get("dataCopyDir", "store", "objects").toFile()), eq(Paths.get("dataCopyDir", ".staging", "foo.manifest").toFile()), any());
+        verify(fileManagerMock, times(1)).moveAtomically(Paths.get("dataCopyDir", ".staging", "foo.manifest").toFile(), Paths.get("dataCopyDir", "store", "manifests", "foo.manifest").toFile());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_MANIFEST\":\"foo.manifest\""));
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
+        verify(fileManagerMock, times(1)).deleteDirectory(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile());
+    }
+
+    @Test
+    void captureBuildScanMetadata_withoutRepublicationExceedingTimeout_recordSkippedScanDump() throws Exception {
+        // given
+        when(configurationMock.isBuildScanRepublication()).thenReturn(false);
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofMillis(100));
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        Path[] paths = {Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan")};
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        CountDownLatch slowCopy = new CountDownLatch(1);
+        doAnswer(invocation -> slowCopy.await(10, TimeUnit.SECONDS)).when(fileManagerMock).copyDirectory(any(File.class), any(File.class), any());
+        underTest.setConfiguration(configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        underTest.captureBuildScanMetadata();
+        slowCopy.countDown();
+
+        // then
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_CAPTURE_SKIPPED\":\"timeout\""));
+        verify(fileManagerMock, never()).moveAtomically(any(File.class), any(File.class));
+    }
+
+    @Test
+    void captureBuildScanMetadata_withoutRepublicationExceedingPolicy_recordSkippedScanDumps() throws Exception {
+        // given
+        when(configurationMock.isBuildScanRepublication()).thenReturn(false);
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofSeconds(10));
+        when(configurationMock.getCaptureMaxDumpSize()).thenReturn(100L);
+        when(configurationMock.getCaptureMaxJobSize()).thenReturn(1000L);
         when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
         when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
         when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
         when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
-        Path[] paths = {Paths.get("foo", "bar"), Paths.get("bar", "baz")};
-        when(fileManagerMock.find(any(File.class),anyInt(),any(BiPredicate.class))).thenReturn(Arrays.stream(paths));
+        Path[] paths = {
+                Paths.get("dataDir", "2.5.0", "previous", "foo", "scan.scan"),
+                Paths.get("dataDir", "2.5.0", "previous", "bar", "scan.scan"),
+                Paths.get("dataDir", "2.5.0", "previous", "baz", "scan.scan")
+        };
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Arrays.asList(paths));
+        when(fileManagerMock.sizeOfDirectory(Paths.get("dataDir", "2.5.0", "previous", "foo").toFile())).thenReturn(200L);
+        when(fileManagerMock.sizeOfDirectory(Paths.get("dataDir", "2.5.0", "previous", "bar").toFile())).thenReturn(50L);
+        when(fileManagerMock.sizeOfDirectory(Paths.get("dataDir", "2.5.0", "previous", "baz").toFile())).thenReturn(60L);
+        File capturedBytes = Paths.get("dataCopyDir", ".staging", "captured-bytes").toFile();
+        when(fileManagerMock.addToCounter(capturedBytes, 50L, 1000L)).thenReturn(true);
+        when(fileManagerMock.addToCounter(capturedBytes, 60L, 1000L)).thenReturn(false);
         underTest.setConfiguration(configurationMock);
         underTest.setFileManager(fileManagerMock);
 
@@ -71,9 +295,11 @@ class MavenBuildScanCaptureListenerTest {
         underTest.captureBuildScanMetadata();
 
         // then
-        verify(fileManagerMock, times(1)).writeContent(any(File.class),anyString());
-        verify(fileManagerMock, times(1)).copyDirectory(any(File.class),any(File.class));
-        verify(fileManagerMock, times(1)).deleteDirectory(any(File.class));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_CAPTURE_SKIPPED\":\"max-dump-size\""));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataCopyDir", "journal-job.jsonl").toFile()), contains("\"BUILD_SCAN_CAPTURE_SKIPPED\":\"max-job-size\""));
+        verify(fileManagerMock, times(1)).copyDirectory(any(File.class), any(File.class), any());
+        verify(fileManagerMock, times(1)).copyDirectory(eq(Paths.get("dataDir", "2.5.0", "previous", "bar").toFile()), any(File.class), any());
+        verify(fileManagerMock, never()).getUsableSpace(any(File.class));
     }
 
     @Test
@@ -90,11 +316,45 @@ class MavenBuildScanCaptureListenerTest {
         underTest.captureBuildScanMetadata();
 
         // then
-        verify(fileManagerMock, times(1)).writeContent(any(File.class),anyString());
-        verify(fileManagerMock, never()).copyDirectory(any(File.class),any(File.class));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
         verify(fileManagerMock, never()).deleteDirectory(any(File.class));
     }
 
+    @Test
+    void configure_withCaptureDisabledAndRetention_evictsStaleScanDump() throws Exception {
+        // given
+        DevelocityApi develocityApiMock = mock(DevelocityApi.class);
+        MavenSession sessionMock = mock(MavenSession.class);
+        when(configurationMock.isCaptureEnabled()).thenReturn(false);
+        when(configurationMock.getRetentionMaxAge()).thenReturn(Duration.ofHours(1));
+        when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn("dataCopyDir");
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        Path scanDump = Paths.get("dataDir", "2.5.0", "previous", "abcdef", "scan.scan");
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Collections.singletonList(scanDump));
+        when(fileManagerMock.getLastModified(scanDump.toFile())).thenReturn(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        underTest.setSessionConfigurations(() -> configurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        // in the daemon the eviction runs when the session ends instead of in a shutdown hook
+        System.setProperty("mvnd.home", "mvnd");
+        try {
+            underTest.configure(develocityApiMock, sessionMock);
+        } finally {
+            System.clearProperty("mvnd.home");
+        }
+        SessionCaptures.end(sessionMock);
+
+        // then
+        verifyNoInteractions(develocityApiMock, sessionMock);
+        verify(fileManagerMock, times(1)).deleteDirectory(scanDump.getParent().toFile());
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
+        verify(fileManagerMock, never()).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "capture-metrics-job.jsonl").toFile()), contains("\"EVICT\":{\"count\":1,"));
+    }
+
     @Test
     void captureBuildScanMetadata_withoutRepublicationWithoutScanDump_saveMetadata() throws Exception {
         // given
@@ -102,7 +362,7 @@ class MavenBuildScanCaptureListenerTest {
         when(configurationMock.getBuildScanDataDir()).thenReturn("dataDir");
         when(configurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
         when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn("metadataCopyDir");
-        when(fileManagerMock.find(any(File.class),anyInt(),any(BiPredicate.class))).thenReturn(Arrays.stream(new Path[]{}));
+        when(fileManagerMock.findScanDumps(any(File.class))).thenReturn(Collections.emptyList());
         underTest.setFileManager(fileManagerMock);
         underTest.setConfiguration(configurationMock);
 
@@ -110,8 +370,9 @@ class MavenBuildScanCaptureListenerTest {
         underTest.captureBuildScanMetadata();
 
         // then
-        verify(fileManagerMock, times(1)).writeContent(any(File.class),anyString());
-        verify(fileManagerMock, never()).copyDirectory(any(File.class),any(File.class));
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "journal-job.jsonl").toFile()), anyString());
+        verify(fileManagerMock, times(1)).writeContent(eq(Paths.get("metadataDir", "capture-metrics-job.jsonl").toFile()), contains("\"LOCATE\":{\"count\":1,"));
+        verify(fileManagerMock, never()).copyDirectory(any(File.class), any(File.class), any());
         verify(fileManagerMock, never()).deleteDirectory(any(File.class));
     }
 
@@ -144,4 +405,127 @@ class MavenBuildScanCaptureListenerTest {
         verify(publishedBuildScanMock, never()).getBuildScanUri();
     }
 
+    @Test
+    void configure_withCaptureDisabled_registersNothing() {
+        // given
+        DevelocityApi develocityApiMock = mock(DevelocityApi.class);
+        MavenSession sessionMock = mock(MavenSession.class);
+        when(configurationMock.isCaptureEnabled()).thenReturn(false);
+        when(configurationMock.getRetentionMaxAge()).thenReturn(Duration.ZERO);
+        underTest.setBuildState(buildStateMock);
+        underTest.setConfiguration(configurationMock);
+
+        // when
+        underTest.configure(develocityApiMock, sessionMock);
+
+        // then
+        verifyNoInteractions(develocityApiMock, sessionMock, buildStateMock);
+    }
+
+    @Test
+    void configure_inDaemonWithCaptureEnabledForSession_capturesAtSessionEnd() throws Exception {
+        // given
+        DevelocityApi develocityApiMock = mock(DevelocityApi.class, RETURNS_DEEP_STUBS);
+        MavenSession sessionMock = mock(MavenSession.class, RETURNS_DEEP_STUBS);
+        Configuration sessionConfigurationMock = mock(Configuration.class);
+        // the first build of the daemon didn't request a capture, the current one does
+        when(configurationMock.isCaptureEnabled()).thenReturn(false);
+        when(sessionConfigurationMock.isCaptureEnabled()).thenReturn(true);
+        when(sessionConfigurationMock.isBuildScanRepublication()).thenReturn(true);
+        when(sessionConfigurationMock.getCaptureTimeout()).thenReturn(Duration.ofMinutes(1));
+        when(sessionConfigurationMock.getBuildScanMetadataDir()).thenReturn("metadataDir");
+        when(sessionConfigurationMock.getJobName()).thenReturn("job");
+        underTest.setConfiguration(configurationMock);
+        underTest.setSessionConfigurations(() -> sessionConfigurationMock);
+        underTest.setFileManager(fileManagerMock);
+
+        // when
+        System.setProperty("mvnd.home", "mvnd");
+        try {
+            underTest.configure(develocityApiMock, sessionMock);
+        } finally {
+            System.clearProperty("mvnd.home");
+        }
+
+        // then
+        assertTrue(SessionCaptures.end(sessionMock));
+        verify(fileManagerMock).writeContent(eq(CaptureMetrics.getMetricsFile("metadataDir", "job")), anyString());
+    }
+
+    @Test
+    void configure_inDaemonWithCaptureDisabledForSession_registersNothing() {
+        // given
+        DevelocityApi develocityApiMock = mock(DevelocityApi.class);
+        MavenSession sessionMock = mock(MavenSession.class);
+        Configuration sessionConfigurationMock = mock(Configuration.class);
+        when(configurationMock.isCaptureEnabled()).thenReturn(true);
+        when(sessionConfigurationMock.isCaptureEnabled()).thenReturn(false);
+        when(sessionConfigurationMock.getRetentionMaxAge()).thenReturn(Duration.ZERO);
+        underTest.setConfiguration(configurationMock);
+        underTest.setSessionConfigurations(() -> sessionConfigurationMock);
+
+        // when
+        System.setProperty("mvnd.home", "mvnd");
+        try {
+            underTest.configure(develocityApiMock, sessionMock);
+        } finally {
+            System.clearProperty("mvnd.home");
+        }
+
+        // then
+        assertFalse(SessionCaptures.end(sessionMock));
+        verifyNoInteractions(develocityApiMock, sessionMock);
+    }
+
+    @Test
+    void captureBuildScanMetadata_withConcurrentInvocations_capturesEachScanDumpOnce(@TempDir Path tempDir) throws Exception {
+        // given
+        int scanDumps = 20;
+        int invocations = 8;
+        Path dataDir = tempDir.resolve("build-scan-data");
+        Path metadataCopyDir = tempDir.resolve("build-scan-metadata-copy");
+        for (int i = 0; i < scanDumps; i++) {
+            Path scanDump = dataDir.resolve("2.5.0/previous/dump-" + i + "/scan.scan");
+            Files.createDirectories(scanDump.getParent());
+            Files.write(scanDump, new byte[1024]);
+        }
+        when(configurationMock.isCaptureUnpublishedBuildScans(anyBoolean())).thenReturn(true);
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(configurationMock.getCaptureTimeout()).thenReturn(Duration.ofSeconds(60));
+        when(configurationMock.getRetentionMaxAge()).thenReturn(Duration.ZERO);
+        when(configurationMock.getBuildScanDataDir()).thenReturn(dataDir.toString());
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn(tempDir.resolve("build-scan-data-copy").toString());
+        when(configurationMock.getBuildScanMetadataDir()).thenReturn(tempDir.resolve("build-scan-metadata").toString());
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn(metadataCopyDir.toString());
+
+        // when
+        ExecutorService executor = Executors.newFixedThreadPool(invocations);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < invocations; i++) {
+            MavenBuildScanCaptureListener invocation = new MavenBuildScanCaptureListener();
+            invocation.setConfiguration(configurationMock);
+            invocation.setFileManager(new DefaultFileManager());
+            futures.add(executor.submit(() -> {
+                start.await();
+                invocation.captureBuildScanMetadata();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        String journal = new String(Files.readAllBytes(metadataCopyDir.resolve("journal-job.jsonl")), StandardCharsets.UTF_8);
+        for (int i = 0; i < scanDumps; i++) {
+            String buildId = "dump-" + i;
+            assertEquals(1, journal.split("\"buildId\":\"" + buildId + "\"", -1).length - 1, buildId + " captured once");
+            assertEquals(1024, Files.size(tempDir.resolve("build-scan-data-copy/2.5.0/previous/" + buildId + "/scan.scan")));
+            assertFalse(Files.exists(dataDir.resolve("2.5.0/previous/" + buildId)));
+        }
+    }
+
 }
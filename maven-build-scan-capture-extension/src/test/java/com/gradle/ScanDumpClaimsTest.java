@@ -0,0 +1,97 @@
+package com.gradle;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScanDumpClaimsTest {
+
+    @TempDir
+    Path buildScanDataDir;
+
+    private final Configuration configurationMock = mock(Configuration.class);
+    private final FileManager fileManager = new DefaultFileManager();
+    private final ScanDumpClaims underTest = new ScanDumpClaims(configurationMock, fileManager);
+
+    @BeforeEach
+    void setup() {
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn(buildScanDataDir.resolve("copy").toString());
+    }
+
+    @Test
+    void claim_withSettledScanDump_claims() throws Exception {
+        // given
+        Path scanDumpDir = createScanDump("abcdef", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+
+        // when
+        boolean claimed = underTest.claim(scanDumpDir);
+
+        // then
+        assertTrue(claimed);
+        assertFalse(new ScanDumpClaims(configurationMock, fileManager).claim(scanDumpDir));
+    }
+
+    @Test
+    void claim_withRecentlyWrittenScanDump_returnsFalseWithoutWaiting() throws Exception {
+        // given
+        long lastModified = System.currentTimeMillis();
+        Path scanDumpDir = createScanDump("abcdef", lastModified);
+
+        // when
+        boolean claimed = underTest.claim(scanDumpDir);
+
+        // then
+        assertFalse(claimed);
+        assertTrue(System.currentTimeMillis() < lastModified + ScanDumpWatcher.SETTLE_MILLIS);
+        // the claim was released, the scan dump can be claimed once settled
+        Files.setLastModifiedTime(scanDumpDir.resolve(ScanDumpLocator.SCAN_DUMP_FILE), FileTime.fromMillis(lastModified - TimeUnit.HOURS.toMillis(1)));
+        assertTrue(new ScanDumpClaims(configurationMock, fileManager).claim(scanDumpDir));
+    }
+
+    @Test
+    void awaitSettled_withRecentlyWrittenScanDumps_waitsOnce() throws Exception {
+        // given
+        long lastModified = System.currentTimeMillis();
+        Path firstScanDumpDir = createScanDump("abcdef", lastModified);
+        Path secondScanDumpDir = createScanDump("ghijkl", lastModified);
+
+        // when
+        underTest.awaitSettled(Arrays.asList(firstScanDumpDir, secondScanDumpDir));
+
+        // then
+        assertTrue(System.currentTimeMillis() >= lastModified + ScanDumpWatcher.SETTLE_MILLIS);
+        assertTrue(underTest.claim(firstScanDumpDir));
+        assertTrue(underTest.claim(secondScanDumpDir));
+    }
+
+    @Test
+    void claim_withCapturedScanDump_returnsFalse() throws Exception {
+        // given
+        Path scanDumpDir = buildScanDataDir.resolve("2.5.0/previous/abcdef");
+
+        // when
+        boolean claimed = underTest.claim(scanDumpDir);
+
+        // then
+        assertFalse(claimed);
+    }
+
+    private Path createScanDump(String buildId, long lastModified) throws Exception {
+        Path scanDumpDir = buildScanDataDir.resolve("2.5.0/previous").resolve(buildId);
+        Files.createDirectories(scanDumpDir);
+        Path scanDump = Files.write(scanDumpDir.resolve(ScanDumpLocator.SCAN_DUMP_FILE), new byte[10]);
+        Files.setLastModifiedTime(scanDump, FileTime.fromMillis(lastModified));
+        return scanDumpDir;
+    }
+}
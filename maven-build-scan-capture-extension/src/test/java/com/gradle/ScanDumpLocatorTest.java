@@ -0,0 +1,49 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanDumpLocatorTest {
+
+    @TempDir
+    Path buildScanDataDir;
+
+    @Test
+    void find_withScanDumps_returnsScanFiles() throws Exception {
+        // given
+        Path scanDump = createFile(buildScanDataDir.resolve("2.5.0/previous/abcdef/scan.scan"));
+        createFile(buildScanDataDir.resolve("2.5.0/previous/abcdef/other.bin"));
+        createFile(buildScanDataDir.resolve("2.5.0/resources/previous/ghijkl/scan.scan"));
+        createFile(buildScanDataDir.resolve("2.5.0/previous/scan.scan"));
+        Files.createDirectories(buildScanDataDir.resolve("2.5.0/previous/mnopqr/scan.scan"));
+
+        // when
+        List<Path> scanDumps = ScanDumpLocator.find(buildScanDataDir.toFile());
+
+        // then
+        assertEquals(1, scanDumps.size());
+        assertEquals(scanDump, scanDumps.get(0));
+    }
+
+    @Test
+    void find_withoutDataDir_returnsEmpty() throws Exception {
+        // when
+        List<Path> scanDumps = ScanDumpLocator.find(buildScanDataDir.resolve("missing").toFile());
+
+        // then
+        assertTrue(scanDumps.isEmpty());
+    }
+
+    private static Path createFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[]{42});
+    }
+}
@@ -0,0 +1,129 @@
+package com.gradle;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScanDumpRetentionTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @TempDir
+    Path buildScanDataDir;
+
+    private final Configuration configurationMock = mock(Configuration.class);
+    private final CaptureMetrics captureMetrics = new CaptureMetrics();
+    private final FileManager fileManager = new DefaultFileManager();
+    private final ScanDumpRetention underTest = new ScanDumpRetention(configurationMock, fileManager, captureMetrics, new ScanDumpClaims(configurationMock, fileManager));
+
+    @BeforeEach
+    void setup() {
+        when(configurationMock.getRetentionMaxAge()).thenReturn(Duration.ZERO);
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn(buildScanDataDir.resolve("copy").toString());
+    }
+
+    @Test
+    void evict_withMaxCount_evictsOldestScanDumps() throws Exception {
+        // given
+        when(configurationMock.getRetentionMaxCount()).thenReturn(2);
+        Path oldest = createScanDump("oldest", 3, 1);
+        Path current = createScanDump("current", 0, 1);
+        Path older = createScanDump("older", 2, 1);
+        Path old = createScanDump("old", 1, 1);
+
+        // when
+        List<Path> kept = underTest.evict(Arrays.asList(oldest, current, older, old), NOW - TimeUnit.MINUTES.toMillis(1));
+
+        // then
+        assertEquals(Arrays.asList(current, old), kept);
+        assertFalse(Files.exists(oldest.getParent()));
+        assertFalse(Files.exists(older.getParent()));
+        assertEquals(2, captureMetrics.getFiles(CaptureMetrics.Phase.EVICT));
+    }
+
+    @Test
+    void evict_withMaxAge_evictsExpiredScanDumps() throws Exception {
+        // given
+        when(configurationMock.getRetentionMaxAge()).thenReturn(Duration.ofMinutes(90));
+        Path expired = createScanDump("expired", 2, 1);
+        Path recent = createScanDump("recent", 1, 1);
+
+        // when
+        List<Path> kept = underTest.evict(Arrays.asList(expired, recent), NOW);
+
+        // then
+        assertEquals(Arrays.asList(recent), kept);
+        assertFalse(Files.exists(expired.getParent()));
+    }
+
+    @Test
+    void evict_withMaxSize_keepsScanDumpsOfCurrentBuild() throws Exception {
+        // given
+        when(configurationMock.getRetentionMaxSize()).thenReturn(150L);
+        Path current = createScanDump("current", 0, 100);
+        Path old = createScanDump("old", 1, 100);
+
+        // when
+        List<Path> kept = underTest.evict(Arrays.asList(current, old), NOW - TimeUnit.MINUTES.toMillis(1));
+
+        // then
+        assertEquals(Arrays.asList(current), kept);
+        assertFalse(Files.exists(old.getParent()));
+        assertEquals(100, captureMetrics.getBytes(CaptureMetrics.Phase.EVICT));
+    }
+
+    @Test
+    void evict_withScanDumpClaimedByConcurrentInvocation_keepsIt() throws Exception {
+        // given
+        when(configurationMock.getRetentionMaxCount()).thenReturn(1);
+        Path current = createScanDump("current", 0, 1);
+        Path claimed = createScanDump("claimed", 1, 1);
+        ScanDumpClaims concurrentClaims = new ScanDumpClaims(configurationMock, fileManager);
+        assertTrue(concurrentClaims.claim(claimed.getParent()));
+
+        // when
+        List<Path> kept = underTest.evict(Arrays.asList(current, claimed), NOW - TimeUnit.MINUTES.toMillis(1));
+
+        // then
+        assertEquals(Arrays.asList(current, claimed), kept);
+        assertTrue(Files.exists(claimed));
+        concurrentClaims.releaseAll();
+    }
+
+    @Test
+    void evict_withoutLimit_keepsScanDumps() throws Exception {
+        // given
+        Path old = createScanDump("old", 1000, 1);
+
+        // when
+        List<Path> kept = underTest.evict(Arrays.asList(old), NOW);
+
+        // then
+        assertEquals(Arrays.asList(old), kept);
+        assertTrue(Files.exists(old));
+        assertEquals(0, captureMetrics.getFiles(CaptureMetrics.Phase.EVICT));
+    }
+
+    private Path createScanDump(String buildId, int ageInHours, int size) throws IOException {
+        Path scanDump = buildScanDataDir.resolve("2.5.0/previous/" + buildId + "/scan.scan");
+        Files.createDirectories(scanDump.getParent());
+        Files.write(scanDump, new byte[size]);
+        Files.setLastModifiedTime(scanDump, FileTime.fromMillis(NOW - TimeUnit.HOURS.toMillis(ageInHours)));
+        return scanDump;
+    }
+}
@@ -0,0 +1,103 @@
+package com.gradle;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class ScanDumpWatcherTest {
+
+    @Mock
+    private Configuration configurationMock;
+
+    @TempDir
+    Path tempDir;
+
+    private Path dataDir;
+    private Path dataCopyDir;
+    private final FileManager fileManager = new DefaultFileManager();
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        dataDir = tempDir.resolve("build-scan-data");
+        dataCopyDir = tempDir.resolve("build-scan-data-copy");
+        when(configurationMock.getJobName()).thenReturn("job");
+        when(configurationMock.getCaptureMode()).thenReturn(Configuration.CaptureMode.COPY);
+        when(configurationMock.getBuildScanDataCopyDir()).thenReturn(dataCopyDir.toString());
+        when(configurationMock.getBuildScanMetadataCopyDir()).thenReturn(tempDir.resolve("build-scan-metadata-copy").toString());
+    }
+
+    @Test
+    void stop_withNewScanDump_returnsEagerCapture() throws Exception {
+        // given
+        createFile(dataDir.resolve("2.5.0/previous/existing/scan.scan"), new byte[10]);
+        ScanDumpWatcher underTest = newWatcher();
+        underTest.start();
+        createFile(dataDir.resolve("2.5.0/previous/abcdef/scan.scan"), new byte[20]);
+        awaitFile(dataCopyDir.resolve(".staging/abcdef.integrity"));
+
+        // when
+        Map<Path, ScanDumpCapture> eagerCaptures = underTest.stop();
+
+        // then
+        assertEquals(1, eagerCaptures.size());
+        ScanDumpCapture capture = eagerCaptures.get(dataDir.resolve("2.5.0/previous/abcdef"));
+        capture.setCurrentMetadata(new BuildMetadata("current"));
+        capture.call();
+        assertEquals(20, Files.size(dataCopyDir.resolve("2.5.0/previous/abcdef/scan.scan")));
+        assertFalse(Files.exists(dataDir.resolve("2.5.0/previous/abcdef")));
+        assertTrue(Files.exists(dataDir.resolve("2.5.0/previous/existing/scan.scan")));
+    }
+
+    @Test
+    void call_withScanDumpModifiedAfterEagerCapture_capturesAgain() throws Exception {
+        // given
+        ScanDumpWatcher underTest = newWatcher();
+        underTest.start();
+        Path scanDump = dataDir.resolve("2.5.0/previous/abcdef/scan.scan");
+        createFile(scanDump, new byte[20]);
+        awaitFile(dataCopyDir.resolve(".staging/abcdef.integrity"));
+        ScanDumpCapture capture = underTest.stop().get(scanDump.getParent());
+        byte[] content = new byte[30];
+        content[29] = 42;
+        Files.write(scanDump, content);
+
+        // when
+        capture.setCurrentMetadata(new BuildMetadata("current"));
+        capture.call();
+
+        // then
+        assertArrayEquals(content, Files.readAllBytes(dataCopyDir.resolve("2.5.0/previous/abcdef/scan.scan")));
+    }
+
+    private ScanDumpWatcher newWatcher() throws IOException {
+        return new ScanDumpWatcher(configurationMock, fileManager, new CaptureMetrics(), new CapturePolicy(configurationMock, fileManager), new ScanDumpClaims(configurationMock, fileManager), dataDir);
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!Files.exists(file) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(file), file + " not created");
+    }
+
+    private static void createFile(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+}
@@ -0,0 +1,58 @@
+package com.gradle;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.transfer.TransferListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SessionEndCaptureParticipantTest {
+
+    private final SessionEndCaptureParticipant underTest = new SessionEndCaptureParticipant();
+
+    @Test
+    void afterSessionEnd_withConcurrentSessions_capturesEndedSessionOnly() {
+        // given
+        MavenSession firstSession = mock(MavenSession.class);
+        MavenSession secondSession = mock(MavenSession.class);
+        AtomicInteger firstCaptures = new AtomicInteger();
+        AtomicInteger secondCaptures = new AtomicInteger();
+        SessionCaptures.register(firstSession, firstCaptures::incrementAndGet);
+        SessionCaptures.register(secondSession, secondCaptures::incrementAndGet);
+
+        // when
+        underTest.afterSessionEnd(firstSession);
+        underTest.afterSessionEnd(firstSession);
+
+        // then
+        assertEquals(1, firstCaptures.get());
+        assertEquals(0, secondCaptures.get());
+        assertFalse(SessionCaptures.end(firstSession));
+        SessionCaptures.end(secondSession);
+        assertEquals(1, secondCaptures.get());
+    }
+
+    @Test
+    void afterSessionStart_withReadOnlyRepositorySession_keepsTransferListener() {
+        // given
+        MavenSession session = mock(MavenSession.class);
+        DefaultRepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+        TransferListener transferListener = mock(TransferListener.class);
+        repositorySession.setTransferListener(transferListener);
+        repositorySession.setReadOnly();
+        when(session.getRepositorySession()).thenReturn(repositorySession);
+
+        // when
+        underTest.afterSessionStart(session);
+
+        // then
+        assertSame(transferListener, repositorySession.getTransferListener());
+    }
+}
@@ -0,0 +1,117 @@
+package com.gradle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TestReportSummaryTest {
+
+    private static final long BUILD_START = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    Path projectDir;
+
+    private final CaptureMetrics captureMetrics = new CaptureMetrics();
+
+    @Test
+    void getTestResults_withSurefireAndFailsafeReports_aggregatesModules() throws Exception {
+        // given
+        Path moduleA = projectDir.resolve("module-a/target");
+        Path moduleB = projectDir.resolve("module-b/target");
+        writeReport(moduleA.resolve("surefire-reports/TEST-com.example.ATest.xml"),
+                "<testsuite name=\"com.example.ATest\" time=\"1.5\" tests=\"4\" errors=\"0\" skipped=\"1\" failures=\"1\"><testcase name=\"a\"/></testsuite>");
+        writeReport(moduleA.resolve("failsafe-reports/TEST-com.example.AIT.xml"),
+                "<testsuite name=\"com.example.AIT\" time=\"1,234.5\" tests=\"2\" errors=\"1\" skipped=\"0\" failures=\"0\"></testsuite>");
+        writeReport(moduleB.resolve("surefire-reports/TEST-com.example.BTest.xml"),
+                "<testsuite name=\"com.example.BTest\" time=\"0.25\" tests=\"3\" errors=\"0\" skipped=\"0\" failures=\"0\"/>");
+        TestReportSummary underTest = new TestReportSummary(Arrays.asList(moduleA, moduleB), BUILD_START, 2, Duration.ofSeconds(10), captureMetrics);
+
+        // when
+        String testResults = underTest.getTestResults();
+
+        // then
+        assertEquals("tests=9, failures=1, errors=1, skipped=1, reports=3", testResults);
+        assertEquals("com.example.AIT=1234500, com.example.ATest=1500", underTest.getSlowestTestClasses());
+        assertEquals(3, captureMetrics.getFiles(CaptureMetrics.Phase.TEST_REPORTS));
+    }
+
+    @Test
+    void getTestResults_withTestSuiteRoot_doesNotReadTestOutput() throws Exception {
+        // given
+        Path module = projectDir.resolve("target");
+        // the output is truncated, as when the build is killed while surefire writes it, and is never read
+        writeReport(module.resolve("surefire-reports/TEST-com.example.LargeTest.xml"),
+                "<testsuite name=\"com.example.LargeTest\" time=\"2\" tests=\"1\" errors=\"0\" skipped=\"0\" failures=\"0\"><testcase name=\"a\"><system-out><![CDATA[output");
+        TestReportSummary underTest = new TestReportSummary(Collections.singletonList(module), BUILD_START, 2, Duration.ofSeconds(10), captureMetrics);
+
+        // when
+        String testResults = underTest.getTestResults();
+
+        // then
+        assertEquals("tests=1, failures=0, errors=0, skipped=0, reports=1", testResults);
+    }
+
+    @Test
+    void getTestResults_withTestSuitesRoot_aggregatesSuites() throws Exception {
+        // given
+        Path module = projectDir.resolve("target");
+        writeReport(module.resolve("surefire-reports/TEST-suites.xml"),
+                "<testsuites><testsuite name=\"com.example.ATest\" time=\"1\" tests=\"2\" errors=\"0\" skipped=\"0\" failures=\"1\"><testcase name=\"a\"/></testsuite>"
+                        + "<testsuite name=\"com.example.BTest\" time=\"3\" tests=\"5\" errors=\"0\" skipped=\"2\" failures=\"0\"/></testsuites>");
+        TestReportSummary underTest = new TestReportSummary(Collections.singletonList(module), BUILD_START, 1, Duration.ofSeconds(10), captureMetrics);
+
+        // when
+        String testResults = underTest.getTestResults();
+
+        // then
+        assertEquals("tests=7, failures=1, errors=0, skipped=2, reports=1", testResults);
+        assertEquals("com.example.BTest=3000", underTest.getSlowestTestClasses());
+    }
+
+    @Test
+    void getTestResults_withStaleAndMalformedReports_reportsIncompleteResults() throws Exception {
+        // given
+        Path module = projectDir.resolve("target");
+        Path stale = writeReport(module.resolve("surefire-reports/TEST-com.example.StaleTest.xml"),
+                "<testsuite name=\"com.example.StaleTest\" time=\"1\" tests=\"8\" errors=\"0\" skipped=\"0\" failures=\"0\"/>");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(BUILD_START - TimeUnit.HOURS.toMillis(1)));
+        writeReport(module.resolve("surefire-reports/TEST-com.example.MalformedTest.xml"), "<testsuite name=\"com.example.MalformedTest\" tests=\"many\"/>");
+        writeReport(module.resolve("surefire-reports/TEST-com.example.ATest.xml"),
+                "<testsuite name=\"com.example.ATest\" time=\"1\" tests=\"1\" errors=\"0\" skipped=\"0\" failures=\"0\"/>");
+        TestReportSummary underTest = new TestReportSummary(Collections.singletonList(module), BUILD_START, 2, Duration.ofSeconds(10), captureMetrics);
+
+        // when
+        String testResults = underTest.getTestResults();
+
+        // then
+        assertEquals("tests=1, failures=0, errors=0, skipped=0, reports=1, incomplete=true", testResults);
+    }
+
+    @Test
+    void getTestResults_withoutReports_returnsNull() {
+        // given
+        TestReportSummary underTest = new TestReportSummary(Collections.singletonList(projectDir.resolve("target")), BUILD_START, 2, Duration.ofSeconds(10), captureMetrics);
+
+        // when
+        String testResults = underTest.getTestResults();
+
+        // then
+        assertNull(testResults);
+    }
+
+    private static Path writeReport(Path report, String content) throws Exception {
+        Files.createDirectories(report.getParent());
+        return Files.write(report, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + content).getBytes(StandardCharsets.UTF_8));
+    }
+}
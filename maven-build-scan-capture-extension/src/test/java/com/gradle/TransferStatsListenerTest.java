@@ -0,0 +1,82 @@
+package com.gradle;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class TransferStatsListenerTest {
+
+    private final RepositorySystemSession sessionMock = mock(RepositorySystemSession.class);
+    private final TransferListener delegateMock = mock(TransferListener.class);
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void transferSucceeded_withDownloadsFromRepositories_aggregatesPerRepository() {
+        // given
+        TransferStatsListener underTest = new TransferStatsListener(delegateMock, 2, clock::get);
+        TransferEvent deploy = new TransferEvent.Builder(sessionMock, resource("central", "org/example/c/1.0/c-1.0.jar"))
+                .setType(TransferEvent.EventType.SUCCEEDED)
+                .setRequestType(TransferEvent.RequestType.PUT)
+                .setTransferredBytes(500)
+                .build();
+
+        // when
+        TransferEvent centralJar = download("central", "org/example/a/1.0/a-1.0.jar", 400, 1000);
+        underTest.transferSucceeded(centralJar);
+        underTest.transferSucceeded(download("central", "org/example/a/1.0/a-1.0.pom", 100, 200));
+        underTest.transferSucceeded(download("mirror", "org/example/b/1.0/b-1.0.jar", 3000, 3000));
+        underTest.transferSucceeded(deploy);
+        underTest.transferFailed(failedDownload("mirror", "org/example/a/maven-metadata.xml"));
+
+        // then
+        assertEquals("mirror: downloads=1, bytes=3000, millis=3000, bytesPerSecond=1000, failures=1; "
+                + "central: downloads=2, bytes=500, millis=1200, bytesPerSecond=416, failures=0", underTest.getRepositories());
+        assertEquals("mirror/org/example/b/1.0/b-1.0.jar=3000, central/org/example/a/1.0/a-1.0.jar=1000", underTest.getSlowestDownloads());
+        verify(delegateMock).transferSucceeded(centralJar);
+        verify(delegateMock).transferSucceeded(deploy);
+    }
+
+    @Test
+    void getRepositories_withoutDownloads_returnsNull() {
+        // given
+        TransferStatsListener underTest = new TransferStatsListener(null, 2, clock::get);
+
+        // when
+        String repositories = underTest.getRepositories();
+
+        // then
+        assertNull(repositories);
+        assertEquals("", underTest.getSlowestDownloads());
+    }
+
+    // The resource records the current time as the download start, the clock is moved by its duration
+    private TransferEvent download(String repositoryId, String resourceName, long bytes, long millis) {
+        TransferResource resource = resource(repositoryId, resourceName);
+        clock.set(resource.getTransferStartTime() + millis);
+        return new TransferEvent.Builder(sessionMock, resource)
+                .setType(TransferEvent.EventType.SUCCEEDED)
+                .setRequestType(TransferEvent.RequestType.GET)
+                .setTransferredBytes(bytes)
+                .build();
+    }
+
+    private TransferEvent failedDownload(String repositoryId, String resourceName) {
+        return new TransferEvent.Builder(sessionMock, resource(repositoryId, resourceName))
+                .setType(TransferEvent.EventType.FAILED)
+                .setRequestType(TransferEvent.RequestType.GET)
+                .build();
+    }
+
+    private static TransferResource resource(String repositoryId, String resourceName) {
+        return new TransferResource(repositoryId, "https://" + repositoryId + ".example.com/", resourceName, null, null);
+    }
+}